@@ -0,0 +1,61 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package maximtomin;
+
+import decimal.AtomicDecimal;
+import decimal.sample.Quantity;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contended total updated by 4 threads: {@link AtomicDecimal} (CAS) vs a {@link Quantity} guarded by synchronized
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Threads(4)
+public class AtomicDecimalBenchmark {
+    private final AtomicDecimal<Quantity> atomicTotal = new AtomicDecimal<>(new Quantity());
+    private final Quantity lockedTotal = new Quantity();
+
+    @State(Scope.Thread)
+    public static class Fill {
+        final Quantity quantity = new Quantity().setRaw(150);
+        final Quantity result = new Quantity();
+    }
+
+    @Benchmark
+    public long atomic(Fill fill) {
+        return atomicTotal.addAndGet(fill.quantity, RoundingMode.UNNECESSARY, fill.result).getRaw();
+    }
+
+    @Benchmark
+    public long synchronizedDecimal(Fill fill) {
+        synchronized (lockedTotal) {
+            return fill.result.set(lockedTotal.add(fill.quantity)).getRaw();
+        }
+    }
+}
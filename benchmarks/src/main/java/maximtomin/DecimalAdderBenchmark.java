@@ -0,0 +1,67 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package maximtomin;
+
+import decimal.AtomicDecimal;
+import decimal.DecimalAdder;
+import decimal.sample.Quantity;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throughput of a total contended by 8 threads: {@link DecimalAdder} vs {@link AtomicDecimal} vs raw {@link LongAdder}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Threads(8)
+public class DecimalAdderBenchmark {
+    private final DecimalAdder<Quantity> adder = new DecimalAdder<>(new Quantity());
+    private final AtomicDecimal<Quantity> atomic = new AtomicDecimal<>(new Quantity());
+    private final LongAdder longAdder = new LongAdder();
+
+    @State(Scope.Thread)
+    public static class Fill {
+        final Quantity quantity = new Quantity().setRaw(150);
+        final Quantity result = new Quantity();
+    }
+
+    @Benchmark
+    public void decimalAdder(Fill fill) {
+        adder.add(fill.quantity);
+    }
+
+    @Benchmark
+    public Quantity atomicDecimal(Fill fill) {
+        return atomic.addAndGet(fill.quantity, fill.result);
+    }
+
+    @Benchmark
+    public void longAdder(Fill fill) {
+        longAdder.add(fill.quantity.getRaw());
+    }
+}
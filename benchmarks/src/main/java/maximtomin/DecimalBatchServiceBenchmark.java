@@ -0,0 +1,104 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package maximtomin;
+
+import decimal.Decimal;
+import decimal.DecimalBatchService;
+import decimal.sample.Price;
+import decimal.sample.Quantity;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Notionals in another currency (price * quantity / rate) of 100 requests per call, by 8 threads:
+ * {@link DecimalBatchService} over raw columns (a single rounding) compared with per-call evaluation on decimals
+ * (rounding after each operation), allocating temporaries and synchronizing on a shared decimal or thread-confined
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Threads(8)
+public class DecimalBatchServiceBenchmark {
+    private static final int SIZE = 100;
+
+    private final Quantity shared = new Quantity();
+    private final DecimalBatchService service =
+            new DecimalBatchService(DecimalBatchService.Formula.MUL_DIV, 8, 2, 9, 2, RoundingMode.HALF_UP);
+
+    @State(Scope.Thread)
+    public static class Requests {
+        final long[] prices = new long[SIZE];
+        final long[] quantities = new long[SIZE];
+        final long[] rates = new long[SIZE];
+        final long[] results = new long[SIZE];
+        final Price[] priceDecimals = new Price[SIZE];
+        final Quantity[] quantityDecimals = new Quantity[SIZE];
+        final Decimal[] rateDecimals = new Decimal[SIZE];
+        final Quantity[] resultDecimals = new Quantity[SIZE];
+
+        @Setup
+        public void setUp() {
+            for (int i = 0; i < SIZE; i++) {
+                prices[i] = 123456789 + i;
+                quantities[i] = 15000 + i;
+                rates[i] = 1085000000 + i;
+                priceDecimals[i] = new Price().setRaw(prices[i]);
+                quantityDecimals[i] = new Quantity().setRaw(quantities[i]);
+                rateDecimals[i] = new Decimal().setRaw(rates[i]);
+                resultDecimals[i] = new Quantity();
+            }
+        }
+    }
+
+    @Benchmark
+    public long[] batch(Requests requests) {
+        service.calculate(requests.prices, requests.quantities, requests.rates, requests.results, SIZE);
+        return requests.results;
+    }
+
+    @Benchmark
+    public Quantity[] perCallSynchronized(Requests requests) {
+        for (int i = 0; i < SIZE; i++) {
+            Price price = new Price().set(requests.priceDecimals[i]);
+            synchronized (shared) {
+                shared.set(price, RoundingMode.HALF_UP).mul(requests.quantityDecimals[i], RoundingMode.HALF_UP)
+                        .div(requests.rateDecimals[i], RoundingMode.HALF_UP);
+                requests.resultDecimals[i].set(shared);
+            }
+        }
+        return requests.resultDecimals;
+    }
+
+    @Benchmark
+    public Quantity[] perCallConfined(Requests requests) {
+        for (int i = 0; i < SIZE; i++) {
+            requests.resultDecimals[i].set(requests.priceDecimals[i], RoundingMode.HALF_UP)
+                    .mul(requests.quantityDecimals[i], RoundingMode.HALF_UP)
+                    .div(requests.rateDecimals[i], RoundingMode.HALF_UP);
+        }
+        return requests.resultDecimals;
+    }
+}
@@ -39,6 +39,7 @@ public class DecimalBenchmark {
     private long seed = System.nanoTime();
     private long value1;
     private long value2;
+    private double doubleValue;
 
     @Setup(Level.Iteration)
     public void setup() {
@@ -47,6 +48,7 @@ public class DecimalBenchmark {
         value1 = seed;
         seed = seed * 6364136223846793005L + 1442695040888963407L;
         value2 = seed;
+        doubleValue = (value1 >>> 11) * 0x1.0p-53 * 1000000; // price-like double with 6 integer digits
     }
 
     @Benchmark
@@ -83,4 +85,24 @@ public class DecimalBenchmark {
     public long quotientBigDecimal() {
         return value2 != 0 ? new BigDecimal(value1).scaleByPowerOfTen(-8).divide(new BigDecimal(value2).scaleByPowerOfTen(-8), RoundingMode.DOWN).signum() : 0;
     }
+
+    @Benchmark
+    public long fromDoubleDecimal() {
+        return new Price().fromDouble(doubleValue, RoundingMode.HALF_EVEN).getRaw();
+    }
+
+    @Benchmark
+    public long fromDoubleBigDecimal() {
+        return new BigDecimal(Double.toString(doubleValue)).setScale(8, RoundingMode.HALF_EVEN).unscaledValue().longValue();
+    }
+
+    @Benchmark
+    public double toDoubleDecimal() {
+        return new Price().setRaw(value1).toDouble();
+    }
+
+    @Benchmark
+    public double toDoubleBigDecimal() {
+        return BigDecimal.valueOf(value1, 8).doubleValue();
+    }
 }
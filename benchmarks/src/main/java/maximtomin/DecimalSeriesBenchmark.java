@@ -0,0 +1,95 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package maximtomin;
+
+import decimal.DecimalSeriesReader;
+import decimal.DecimalSeriesWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding of 1M tick prices (8 MB raw), decode GB/s = ops/s * 8M / 1G.
+ * The compression ratio is printed on setup.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class DecimalSeriesBenchmark {
+    private static final int SIZE = 1 << 20;
+
+    @Param({"walk", "levels", "random"})
+    private String series;
+
+    private long[] values;
+    private long[] decoded;
+    private DecimalSeriesReader reader;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(42);
+        values = new long[SIZE];
+        long price = 123450000000L;
+        for (int i = 0; i < SIZE; i++) {
+            switch (series) {
+                case "walk":
+                    price += (random.nextInt(5) - 2) * 500000L; // tick 0.005
+                    values[i] = price;
+                    break;
+                case "levels":
+                    values[i] = price + random.nextInt(16) * 1000000L;
+                    break;
+                default:
+                    values[i] = random.nextLong();
+            }
+        }
+        byte[] bytes = encode();
+        reader = new DecimalSeriesReader(ByteBuffer.wrap(bytes));
+        decoded = new long[reader.getBlockSize()];
+        System.out.printf("%n%s: %d bytes, compression ratio %.2f%n", series, bytes.length, SIZE * 8.0 / bytes.length);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(SIZE * 8);
+        DecimalSeriesWriter writer = new DecimalSeriesWriter(out);
+        writer.add(values, 0, SIZE);
+        writer.close();
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public long decode() {
+        long sum = 0;
+        for (int block = 0; block < reader.getBlockCount(); block++) {
+            int count = reader.readBlock(block, decoded, 0);
+            sum += decoded[count - 1];
+        }
+        return sum;
+    }
+}
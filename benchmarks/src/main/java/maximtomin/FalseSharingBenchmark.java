@@ -0,0 +1,83 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package maximtomin;
+
+import decimal.PaddedDecimalArray;
+import decimal.sample.Quantity;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 4 threads, each updating its own element of a shared array: adjacent elements (false sharing) vs {@link PaddedDecimalArray}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Threads(4)
+public class FalseSharingBenchmark {
+    private static final VarHandle RAW = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final AtomicInteger THREADS = new AtomicInteger();
+
+    private final long[] raws = new long[4];
+    private final Quantity[] quantities = {new Quantity(), new Quantity(), new Quantity(), new Quantity()};
+    private final PaddedDecimalArray<Quantity> padded = new PaddedDecimalArray<>(new Quantity(), 4);
+
+    @State(Scope.Thread)
+    public static class Strategy {
+        final int index = THREADS.getAndIncrement() & 3;
+        final Quantity fill = new Quantity().setRaw(150);
+        PaddedDecimalArray.Cell cell;
+
+        @Setup
+        public void setUp(FalseSharingBenchmark benchmark) {
+            cell = benchmark.padded.cell().at(index);
+        }
+    }
+
+    @Benchmark
+    public void longArray(Strategy strategy) {
+        int index = strategy.index;
+        RAW.setRelease(raws, index, (long) RAW.get(raws, index) + strategy.fill.getRaw());
+    }
+
+    @Benchmark
+    public Quantity decimalArray(Strategy strategy) {
+        return quantities[strategy.index].add(strategy.fill);
+    }
+
+    @Benchmark
+    public void paddedArray(Strategy strategy) {
+        padded.add(strategy.index, strategy.fill);
+    }
+
+    @Benchmark
+    public PaddedDecimalArray.Cell paddedCell(Strategy strategy) {
+        return strategy.cell.add(strategy.fill, RoundingMode.UNNECESSARY);
+    }
+}
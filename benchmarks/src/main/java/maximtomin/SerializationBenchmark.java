@@ -0,0 +1,132 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package maximtomin;
+
+import decimal.AbstractDecimal;
+import decimal.DecimalCodec;
+import decimal.sample.Price;
+import decimal.sample.Quantity;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trip of a price, of 100 prices and of 100 quantities: the compact serialized form of the decimals,
+ * the default serialized form (a price without a no-arg constructor) and the scale-tagged {@link DecimalCodec}
+ * encoding. Stream sizes are printed on setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class SerializationBenchmark {
+    private static final int SIZE = 100;
+
+    private final Price[] prices = new Price[SIZE];
+    private final DefaultFormPrice[] defaultFormPrices = new DefaultFormPrice[SIZE];
+    private final Quantity[] quantities = new Quantity[SIZE];
+    private final byte[] buffer = new byte[SIZE * 2 * 11];
+
+    @Setup
+    public void setup() throws Exception {
+        for (int i = 0; i < SIZE; i++) {
+            prices[i] = new Price().setRaw(10000000000L + i * 1000000L);
+            defaultFormPrices[i] = new DefaultFormPrice(prices[i].getRaw());
+            quantities[i] = new Quantity().setRaw(10000 + i * 100);
+        }
+        System.out.printf("%nCompact form: %d, %d + %d bytes, default form: %d, %d bytes, codec: %d + %d bytes%n",
+                serialize(prices[0]).length, serialize(prices).length, serialize(quantities).length,
+                serialize(defaultFormPrices[0]).length, serialize(defaultFormPrices).length,
+                encode(prices, 0), encode(quantities, 0));
+    }
+
+    @Benchmark
+    public Object compactForm() throws Exception {
+        return deserialize(serialize(prices[0]));
+    }
+
+    @Benchmark
+    public Object defaultForm() throws Exception {
+        return deserialize(serialize(defaultFormPrices[0]));
+    }
+
+    @Benchmark
+    public Object compactFormArray() throws Exception {
+        return deserialize(serialize(prices));
+    }
+
+    @Benchmark
+    public Object defaultFormArray() throws Exception {
+        return deserialize(serialize(defaultFormPrices));
+    }
+
+    @Benchmark
+    public Object codec() {
+        int end = encode(quantities, encode(prices, 0));
+        int offset = 0;
+        for (Price price : prices) {
+            offset = DecimalCodec.get(buffer, offset, price, RoundingMode.UNNECESSARY);
+        }
+        for (Quantity quantity : quantities) {
+            offset = DecimalCodec.get(buffer, offset, quantity, RoundingMode.UNNECESSARY);
+        }
+        return end == offset ? quantities : null;
+    }
+
+    private int encode(AbstractDecimal<?>[] values, int offset) {
+        for (AbstractDecimal<?> value : values) {
+            offset = DecimalCodec.put(value, buffer, offset);
+        }
+        return offset;
+    }
+
+    private static byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] bytes) throws Exception {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
+
+    /**
+     * Price without a no-arg constructor, serialized in the default form
+     */
+    public static class DefaultFormPrice extends AbstractDecimal<DefaultFormPrice> {
+        public DefaultFormPrice(long raw) {
+            setRaw(raw);
+        }
+
+        @Override
+        protected int getScale() {
+            return 8;
+        }
+    }
+}
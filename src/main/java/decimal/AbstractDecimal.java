@@ -23,6 +23,11 @@
  */
 package decimal;
 
+import java.io.ObjectStreamException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.math.RoundingMode;
 import java.text.ParseException;
 
@@ -48,11 +53,29 @@ import java.text.ParseException;
  * A long value can be used instead of a Decimal argument with 0 dp.
  * <p>
  * Note: this class has a natural ordering that is inconsistent with equals, see {@link #compareTo}
+ * <p>
+ * Query methods (conversions, comparison, formatting, serialization) never modify the object, so a value that is no
+ * longer modified can be shared between threads (after safe publication) without locking or cloning.
+ * A preallocated instance can be republished with the memory-ordering raw accessors, e.g. {@link #setRawRelease} by
+ * the writer and {@link #getRawAcquire} by readers (the writer must compute the value elsewhere, as arithmetic uses
+ * the raw storage for intermediate results).
  *
  * @param <T>
  */
-public abstract class AbstractDecimal<T extends AbstractDecimal> extends BaseDecimal implements Comparable<T>, Cloneable {
+public abstract class AbstractDecimal<T extends AbstractDecimal> extends BaseDecimal
+        implements Comparable<T>, Cloneable {
     public static final long NaN = Long.MIN_VALUE;
+    private static final VarHandle RAW;
+
+    static {
+        try {
+            RAW = MethodHandles.lookup().findVarHandle(BaseDecimal.class, "a", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    transient boolean frozen;
 
     /**
      * Implied decimal points, must be constant for the class, must be between 0 and 9.
@@ -79,10 +102,80 @@ public abstract class AbstractDecimal<T extends AbstractDecimal> extends BaseDec
      * Raw long value without decimal points
      */
     public T setRaw(long raw) {
+        assert !frozen : "Frozen decimal must not be changed";
         a = raw;
         return self();
     }
 
+    /**
+     * Raw value with volatile semantics
+     */
+    public long getRawVolatile() {
+        return (long) RAW.getVolatile(this);
+    }
+
+    public T setRawVolatile(long raw) {
+        assert !frozen : "Frozen decimal must not be changed";
+        RAW.setVolatile(this, raw);
+        return self();
+    }
+
+    /**
+     * Raw value with acquire semantics: the writes made before the matching {@link #setRawRelease} are visible
+     */
+    public long getRawAcquire() {
+        return (long) RAW.getAcquire(this);
+    }
+
+    /**
+     * Sets raw value with release semantics (cheaper than volatile), see {@link #getRawAcquire}
+     */
+    public T setRawRelease(long raw) {
+        assert !frozen : "Frozen decimal must not be changed";
+        RAW.setRelease(this, raw);
+        return self();
+    }
+
+    /**
+     * Raw value with opaque semantics: eventually sees the latest value without ordering other accesses,
+     * e.g. for monitoring
+     */
+    public long getRawOpaque() {
+        return (long) RAW.getOpaque(this);
+    }
+
+    public T setRawOpaque(long raw) {
+        assert !frozen : "Frozen decimal must not be changed";
+        RAW.setOpaque(this, raw);
+        return self();
+    }
+
+    /**
+     * Atomically sets the raw value if the current one is expected (volatile semantics)
+     *
+     * @return true if successful
+     */
+    public boolean compareAndSetRaw(long expected, long raw) {
+        assert !frozen : "Frozen decimal must not be changed";
+        return RAW.compareAndSet(this, expected, raw);
+    }
+
+    /**
+     * Marks the value as a constant: any modification is an error, checked with assertions only (no cost in production)
+     * at the start of each modifying method, so a frozen value is never changed when assertions are enabled.
+     * All methods take arguments read-only, so frozen values can be used as arguments and shared between threads.
+     *
+     * @return this
+     */
+    public T freeze() {
+        frozen = true;
+        return self();
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
     /**
      * true if the value is NaN.
      * All arithmetic operations with NaN returns NaN.
@@ -120,12 +213,13 @@ public abstract class AbstractDecimal<T extends AbstractDecimal> extends BaseDec
      * Rounding is required if the argument scale is greater than this scale.
      */
     public T set(AbstractDecimal<?> a, RoundingMode roundingMode) {
+        assert !frozen : "Frozen decimal must not be changed"; // before the accumulator is used
         int scale = getScale() - a.getScale();
-        if (scale == 0) {
+        if (scale == 0 || a.isNaN()) {
             return setRaw(a.getRaw());
-        } else if (scale < 0 && !a.isNaN()) {
+        } else if (scale < 0) {
             long result = downScale_63_31(a.getRaw(), -scale);
-            long remainder = getRaw();
+            long remainder = this.a;
             return setRaw(round(result, remainder, POW10[-scale], roundingMode));
         } else {
             return setRaw(scaleWithOverflow(a.getRaw(), scale));
@@ -193,19 +287,20 @@ public abstract class AbstractDecimal<T extends AbstractDecimal> extends BaseDec
      * Adds 2 longs and multiply the result by (possibly negative) power of 10
      */
     private T plus(long a, long b, RoundingMode roundingMode, int scale) {
+        assert !frozen : "Frozen decimal must not be changed"; // before the accumulator is used
         if (scale >= 0 || a == NaN || b == NaN) {
             return setRaw(plusAndScale(a, b, scale));
         }
 
         if (a >= 0 && b >= 0) { // unsigned overflow is not possible, ok with signed one
             a = unsignedDownScale_64_31(a + b, -scale);
-            b = getRaw();
+            b = this.a;
         } else if (a < 0 && b < 0) { // same as above, but negate everything before and after
             a = -unsignedDownScale_64_31(-a - b, -scale);
-            b = -getRaw();
+            b = -this.a;
         } else { // no overflow is possible
             a = downScale_63_31(a + b, -scale);
-            b = getRaw();
+            b = this.a;
         }
         return setRaw(round(a, b, POW10[-scale], roundingMode));
     }
@@ -248,10 +343,11 @@ public abstract class AbstractDecimal<T extends AbstractDecimal> extends BaseDec
      * Adds a value multiplied by (possibly negative)  power of 10
      */
     private T add(long a, RoundingMode roundingMode, int scale) {
+        assert !frozen : "Frozen decimal must not be changed"; // before the accumulator is used
         if (scale < 0 && !isNaN() && a != NaN) {
             long self = getRaw();
             long other = downScale_63_31(a, -scale);
-            long remainder = getRaw();
+            long remainder = this.a;
 
             // have to inline plusWithOverflow here to avoid extra "if NaN then return immediately"
             long result = self + other;
@@ -362,6 +458,7 @@ public abstract class AbstractDecimal<T extends AbstractDecimal> extends BaseDec
      * Rounding is required if the arguments scale combined is greater than this scale.
      */
     public <V extends AbstractDecimal> T product(V a, V b, RoundingMode roundingMode) {
+        assert !frozen : "Frozen decimal must not be changed"; // before the accumulator is used
         if (a.getScale() != b.getScale()) {
             throw new IllegalArgumentException("Scales must be the same");
         }
@@ -379,6 +476,7 @@ public abstract class AbstractDecimal<T extends AbstractDecimal> extends BaseDec
      * Rounding is not required.
      */
     public T product(long a, long b) {
+        assert !frozen : "Frozen decimal must not be changed"; // before the accumulator is used
         return setRaw(scaleWithOverflow(mulWithOverflow(a, b), getScale()));
     }
 
@@ -395,6 +493,7 @@ public abstract class AbstractDecimal<T extends AbstractDecimal> extends BaseDec
      * Rounding is required if argument scale is not zero.
      */
     public <V extends AbstractDecimal> T mul(V a, RoundingMode roundingMode) {
+        assert !frozen : "Frozen decimal must not be changed"; // before the accumulator is used
         return setRaw(mulScaleRound(getRaw(), a.getRaw(), a.getScale(), roundingMode));
     }
 
@@ -403,6 +502,7 @@ public abstract class AbstractDecimal<T extends AbstractDecimal> extends BaseDec
      * Rounding is not required.
      */
     public T mul(long a) {
+        assert !frozen : "Frozen decimal must not be changed"; // before the accumulator is used
         return setRaw(mulWithOverflow(getRaw(), a));
     }
 
@@ -442,6 +542,7 @@ public abstract class AbstractDecimal<T extends AbstractDecimal> extends BaseDec
      * Return {@link #NaN} if b is zero.
      */
     public T quotient(long a, long b, RoundingMode roundingMode) {
+        assert !frozen : "Frozen decimal must not be changed"; // before the accumulator is used
         return setRaw(scaleDivRound(a, getScale(), b, roundingMode));
     }
 
@@ -460,6 +561,7 @@ public abstract class AbstractDecimal<T extends AbstractDecimal> extends BaseDec
      * Return {@link #NaN} if a is zero.
      */
     public <V extends AbstractDecimal> T div(V a, RoundingMode roundingMode) {
+        assert !frozen : "Frozen decimal must not be changed"; // before the accumulator is used
         return setRaw(scaleDivRound(getRaw(), a.getScale(), a.getRaw(), roundingMode));
     }
 
@@ -497,12 +599,23 @@ public abstract class AbstractDecimal<T extends AbstractDecimal> extends BaseDec
     @Override
     public T clone() {
         try {
-            return (T) super.clone();
+            T clone = (T) super.clone();
+            clone.frozen = false;
+            return clone;
         } catch (CloneNotSupportedException e) {
             throw new RuntimeException("Unexpected", e);
         }
     }
 
+    /**
+     * Replaces this with the compact serialized form (class name, scale and var long raw value, see
+     * {@link SerializedDecimal}) if the class has a no-arg constructor and no serializable fields of its own,
+     * otherwise this is serialized as usual
+     */
+    protected Object writeReplace() throws ObjectStreamException {
+        return SerializedDecimal.replace(this);
+    }
+
     /**
      * Compares 2 values considering the scale ("0.123" < "12.0" although its not true for raw values)
      * {@link #NaN} is smaller than any other number irrespective of scale. Two {@link #NaN}s are equal to each other.
@@ -532,6 +645,27 @@ public abstract class AbstractDecimal<T extends AbstractDecimal> extends BaseDec
         }
     }
 
+    /**
+     * Equal if the classes and raw values are the same
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        return getRaw() == ((AbstractDecimal<?>) o).getRaw();
+    }
+
+    @Override
+    public int hashCode() {
+        long raw = getRaw();
+        return (int) (raw ^ (raw >>> 32));
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -595,15 +729,10 @@ public abstract class AbstractDecimal<T extends AbstractDecimal> extends BaseDec
             throw new ArithmeticException("NaN");
         }
 
-
-        long raw = getRaw(); // will be overridden by remainder
-
+        long raw = getRaw();
         int scale = getScale();
-        long result = round(downScale_63_31(raw, scale), getRaw(), POW10[scale], roundingMode);
-
-        setRaw(raw);
-
-        return result;
+        long whole = divPow10(raw, scale);
+        return round(whole, raw - whole * POW10[scale], POW10[scale], roundingMode);
     }
 
     /**
@@ -624,6 +753,7 @@ public abstract class AbstractDecimal<T extends AbstractDecimal> extends BaseDec
      * @param roundingMode required if scale is greater than {@link #getScale}
      */
     public T fromLong(long value, int scale, RoundingMode roundingMode) {
+        assert !frozen : "Frozen decimal must not be changed"; // before the accumulator is used
         if (scale < -18) {
             return setRaw(value == 0 ? 0 : NaN);
         }
@@ -638,18 +768,21 @@ public abstract class AbstractDecimal<T extends AbstractDecimal> extends BaseDec
         } else {
             scale = -scale;
             assert scale <= 18;
-            long remainder = 0;
+            long remainder;
             long divisor = LONG_POW10[scale];
             if (scale > 9) {
                 // double division by constant
                 // the formula for final remainder derived from:
                 // v / d1 / d2 = (q1 + r1 / d1) / d2 = q1 / d2 + r1 / d1d2 = q2 + r2 / d2 + r1 / d1d2 = q2 + (r2d1 + r1) / d1d2
                 value = downScale_63_31(value, 9);
-                remainder = a * 1000000000;
+                remainder = a;
                 scale -= 9;
+                value = downScale_63_31(value, scale);
+                remainder += a * 1000000000;
+            } else {
+                value = downScale_63_31(value, scale);
+                remainder = a;
             }
-            value = downScale_63_31(value, scale);
-            remainder += a;
 
             return setRaw(round(value, remainder, divisor, roundingMode));
         }
@@ -660,47 +793,66 @@ public abstract class AbstractDecimal<T extends AbstractDecimal> extends BaseDec
     }
 
     /**
-     * Converts Decimal to floating-point number, returns {@link Double#NaN} if {@link #NaN}
+     * Converts Decimal to the closest floating-point number (correctly rounded), returns {@link Double#NaN} if {@link #NaN}
      */
     public double toDouble() {
-        return !isNaN() ? (double) getRaw() / POW10[getScale()] : Double.NaN;
+        return DoubleConversion.toDouble(getRaw(), getScale());
     }
 
     /**
-     * Converts doublie to Decimal value rounding DOWN
+     * Converts double to Decimal value rounding DOWN
      */
     public T fromDoubleRD(double value) {
         return fromDouble(value, RoundingMode.DOWN);
     }
 
     /**
-     * Converts doublie to Decimal value with the following rounding modes supported:<ul>
-     *     <li>DOWN - simple cast</li>
-     *     <li>FLOOR - uses {@link Math#floor}</li>
-     *     <li>CEILING - uses {@link Math#ceil}</li>
-     *     <li>HALF_EVEN - uses {@link Math#rint}</li>
-     * </ul>
+     * Converts double to Decimal value exactly, all rounding modes are supported. Can result in {@link #NaN}
+     * (if overflow, infinite or NaN).
+     * <p>
+     * If there is a decimal of this scale converting back to exactly the same double, the closest such decimal is
+     * returned, e.g. 1.15 is "1.15" even with DOWN rounding (although the double is 1.149999999999999911182158029987...),
+     * which is the same as rounding of {@link Double#toString} value.
+     * Otherwise, exact binary value of the double is rounded.
      */
     public T fromDouble(double value, RoundingMode roundingMode) {
-        value *= POW10[getScale()];
-        switch (roundingMode) {
-            case DOWN:
-                return setIntDouble(value);
-            case UP:
-                return setIntDouble(value > 0 ? Math.ceil(value) : Math.floor(value));
-            case FLOOR:
-                return setIntDouble(Math.floor(value));
-            case CEILING:
-                return setIntDouble(Math.ceil(value));
-            case HALF_EVEN:
-                return setIntDouble(Math.rint(value));
-            default:
-                throw new IllegalArgumentException("Unsupported rounding mode for double: " + roundingMode);
+        return setRaw(DoubleConversion.toRaw(value, getScale(), roundingMode));
+    }
+
+    /**
+     * Converts Decimal to BigDecimal with the same scale, throws exception if {@link #NaN}. Allocating.
+     */
+    public BigDecimal toBigDecimal() {
+        if (isNaN()) {
+            throw new ArithmeticException("NaN");
         }
+        return BigDecimal.valueOf(getRaw(), getScale());
     }
 
-    private T setIntDouble(double value) {
-        return setRaw(value >= -Long.MAX_VALUE && value <= Long.MAX_VALUE ? (long) value : NaN);
+    /**
+     * Converts BigDecimal to Decimal value. Can result in {@link #NaN} (if overflow or rounding is UNNECESSARY but required).
+     * Values with unscaled value fitting long are converted with {@link #fromLong(long, int, RoundingMode)}
+     * (no String conversion, only {@link BigDecimal#unscaledValue} is allocated), otherwise BigDecimal rounding is used.
+     *
+     * @param roundingMode required if the value has more fraction digits than {@link #getScale}
+     */
+    public T fromBigDecimal(BigDecimal value, RoundingMode roundingMode) {
+        BigInteger unscaled = value.unscaledValue();
+        if (unscaled.bitLength() < 64 && unscaled.longValue() != NaN) {
+            return fromLong(unscaled.longValue(), value.scale(), roundingMode);
+        }
+
+        if (value.scale() <= getScale()) {
+            return setRaw(NaN); // can only be scaled up, overflow
+        }
+        if (roundingMode == RoundingMode.UNNECESSARY) {
+            value = value.stripTrailingZeros();
+            if (value.scale() > getScale()) {
+                return setRaw(NaN); // rounding is required
+            }
+        }
+        unscaled = value.setScale(getScale(), roundingMode).unscaledValue();
+        return setRaw(unscaled.bitLength() < 64 ? unscaled.longValue() : NaN);
     }
 
     /**
@@ -746,76 +898,227 @@ public abstract class AbstractDecimal<T extends AbstractDecimal> extends BaseDec
     /**
      * Parse a string (including NaN) and creates a value from it.
      * Unlike other methods, does NOT use NaN to indicate an error, uses ParseException instead.
+     * An optional exponent is supported, e.g. "1.5E-4" or "2e3".
+     * No rounding is allowed, the string must not have more significant fraction digits than {@link #getScale}.
      */
     public T parse(CharSequence charSequence) throws ParseException {
         return parse(charSequence, 0, charSequence.length());
     }
 
     public T parse(CharSequence charSequence, int offset, int length) throws ParseException {
-        if (length == 0) {
-            throw new ParseException("Empty string", 0);
+        return parse(charSequence, offset, length, RoundingMode.UNNECESSARY);
+    }
+
+    /**
+     * Parse a string (including NaN and an optional exponent), rounding if it has more fraction digits than
+     * {@link #getScale}, e.g. "1.5E-4".
+     * Unlike other methods, does NOT use NaN to indicate an error, uses ParseException instead.
+     */
+    public T parse(CharSequence charSequence, RoundingMode roundingMode) throws ParseException {
+        return parse(charSequence, 0, charSequence.length(), roundingMode);
+    }
+
+    public T parse(CharSequence charSequence, int offset, int length, RoundingMode roundingMode) throws ParseException {
+        assert !frozen : "Frozen decimal must not be changed"; // before the accumulator is used
+        long raw = getRaw();
+        int error = parseInternal(charSequence, offset, offset + length, roundingMode);
+        if (error != PARSE_OK) {
+            setRaw(raw); // the value is not changed on error
+            throw new ParseException(PARSE_ERRORS[error & PARSE_ERROR_MASK], error >>> PARSE_ERROR_BITS);
+        }
+        return self();
+    }
+
+    /**
+     * Same as {@link #parse(CharSequence, int, int, RoundingMode)}, but does not throw exception,
+     * sets {@link #NaN} and returns false if the string is malformed, overflows or requires rounding.
+     * Non-allocating, e.g. with {@link AsciiSequence} wrapping a byte buffer.
+     */
+    public boolean tryParse(CharSequence charSequence, int offset, int length, RoundingMode roundingMode) {
+        assert !frozen : "Frozen decimal must not be changed"; // before the accumulator is used
+        if (parseInternal(charSequence, offset, offset + length, roundingMode) != PARSE_OK) {
+            setRaw(NaN);
+            return false;
+        }
+        return true;
+    }
+
+    private static final int PARSE_OK = 0;
+    private static final int PARSE_EMPTY = 1;
+    private static final int PARSE_SINGLE_MINUS = 2;
+    private static final int PARSE_ALPHANUMERIC = 3;
+    private static final int PARSE_DOUBLE_DOT = 4;
+    private static final int PARSE_LAST_DOT = 5;
+    private static final int PARSE_UNEXPECTED = 6;
+    private static final int PARSE_OVERFLOW = 7;
+    private static final int PARSE_EXPONENT = 8;
+    private static final int PARSE_NO_DIGITS = 9;
+    private static final int PARSE_OVERFLOW_OR_ROUNDING = 10;
+    private static final String[] PARSE_ERRORS = {
+            "OK",
+            "Empty string",
+            "Single '-' is not expected",
+            "Unexpected alphanumeric value",
+            "Double '.' found",
+            "Last '.' found",
+            "Unexpected character",
+            "Overflow",
+            "Incorrect exponent",
+            "No digits found",
+            "Overflow or rounding required"
+    };
+    private static final int PARSE_ERROR_BITS = 4;
+    private static final int PARSE_ERROR_MASK = (1 << PARSE_ERROR_BITS) - 1;
+    private static final int MAX_EXPONENT = 100000; // way beyond any representable value, but no int overflow
+
+    /**
+     * Parses chars from offset (inclusive) to end (exclusive) as "[-](digits)[.digits][(e|E)[+|-]digits]" or "NaN"
+     * and puts the result to this, mantissa and exponent are folded into {@link #fromLong(long, int, RoundingMode)}.
+     * Trailing zeroes of the mantissa are moved to the exponent, so they never cause overflow or rounding.
+     * Digits not fitting into the mantissa are moved to the exponent as well, the first of them and a sticky flag
+     * of the rest are kept for rounding.
+     *
+     * @return {@link #PARSE_OK} or the error code with the error offset in the higher bits
+     */
+    private int parseInternal(CharSequence charSequence, int offset, int end, RoundingMode roundingMode) {
+        int start = offset;
+        if (offset >= end) {
+            return PARSE_EMPTY;
         }
 
         boolean negative = false;
         char ch = charSequence.charAt(offset);
         switch (ch) {
             case '-':
-                if (length == 1) {
-                    throw new ParseException("Single '-' is not expected", 0);
+                if (end - offset == 1) {
+                    return PARSE_SINGLE_MINUS;
                 }
                 negative = true;
                 offset++;
                 break;
             case 'N':
             case 'n':
-                if (length != 3 ||
+                if (end - offset != 3 ||
                         charSequence.charAt(offset + 1) != 'a' && charSequence.charAt(offset + 1) != 'A' ||
                         charSequence.charAt(offset + 2) != 'n' && charSequence.charAt(offset + 2) != 'N') {
-                    throw new ParseException("Unexpected alphanumeric value", 0);
+                    return PARSE_ALPHANUMERIC;
                 }
-                return setRaw(NaN);
+                setRaw(NaN);
+                return PARSE_OK;
             default:
                 // go on
         }
 
-        long result = 0;
-        int fractionalStart = length;
-        while (offset < length) {
+        long mantissa = 0;
+        int exponent = 0; // value = mantissa * 10^exponent
+        int zeroes = 0; // trailing zeroes not yet multiplied into mantissa
+        boolean full = false; // further digits don't fit into mantissa, value = (mantissa + 0.(dropped)...) * 10^exponent
+        int dropped = 0; // first digit not fitting into mantissa
+        boolean sticky = false; // whether any digit after the dropped one is non-zero
+        boolean digits = false;
+        boolean fraction = false;
+        while (offset < end) {
             ch = charSequence.charAt(offset++);
-            if (ch == '.') {
-                if (fractionalStart != length) {
-                    throw new ParseException("Double '.' found", offset);
+            if (ch >= '0' && ch <= '9') {
+                digits = true;
+                if (fraction) {
+                    exponent--;
+                }
+                if (full) {
+                    // mantissa is full, the digit only shifts the exponent
+                    exponent++;
+                    sticky |= ch != '0';
+                    continue;
                 }
-                if (offset == length) {
-                    throw new ParseException("Last '.' found", offset);
+                if (ch == '0') {
+                    zeroes++;
+                    continue;
+                }
+                if (mantissa != 0) {
+                    if (zeroes >= 18 || mantissa > SCALE_OVERFLOW_LIMITS[zeroes + 1] ||
+                            mantissa * LONG_POW10[zeroes + 1] > Long.MAX_VALUE - (ch - '0')) {
+                        // move the zeroes into mantissa while it can hold them, then keep the first dropped digit
+                        // and whether any further one is non-zero for rounding
+                        while (zeroes > 0 && mantissa <= SCALE_OVERFLOW_LIMITS[1]) {
+                            mantissa *= 10;
+                            zeroes--;
+                        }
+                        full = true;
+                        dropped = zeroes == 0 ? ch - '0' : 0;
+                        sticky = zeroes > 0;
+                        exponent += zeroes + 1;
+                        zeroes = 0;
+                        continue;
+                    }
+                    mantissa *= LONG_POW10[zeroes + 1];
                 }
-                fractionalStart = offset; // dot position incremented
-                while (length > fractionalStart && charSequence.charAt(length - 1) == '0') {
-                    length--;
+                mantissa += ch - '0';
+                zeroes = 0;
+            } else if (ch == '.') {
+                if (fraction) {
+                    return PARSE_DOUBLE_DOT | (offset << PARSE_ERROR_BITS);
                 }
-            } else if (ch >= '0' && ch <= '9') {
-                if (result > Long.MAX_VALUE / 10) {
-                    throw new ParseException("Overflow", 0);
+                if (offset == end || charSequence.charAt(offset) < '0' || charSequence.charAt(offset) > '9') {
+                    return PARSE_LAST_DOT | (offset << PARSE_ERROR_BITS);
                 }
-                result *= 10;
-                result += ch - '0';
-                if (result < 0) {
-                    throw new ParseException("Overflow", 0);
+                fraction = true;
+            } else if ((ch == 'e' || ch == 'E') && digits) {
+                int error = offset - 1;
+                boolean negativeExponent = false;
+                if (offset < end && (charSequence.charAt(offset) == '-' || charSequence.charAt(offset) == '+')) {
+                    negativeExponent = charSequence.charAt(offset++) == '-';
+                }
+                if (offset == end) {
+                    return PARSE_EXPONENT | (error << PARSE_ERROR_BITS);
+                }
+                int value = 0;
+                while (offset < end) {
+                    ch = charSequence.charAt(offset++);
+                    if (ch < '0' || ch > '9') {
+                        return PARSE_EXPONENT | (error << PARSE_ERROR_BITS);
+                    }
+                    value = Math.min(value * 10 + ch - '0', MAX_EXPONENT);
                 }
+                exponent += negativeExponent ? -value : value;
             } else {
-                throw new ParseException("Unexpected " + ch, offset - 1);
+                return PARSE_UNEXPECTED | ((offset - 1) << PARSE_ERROR_BITS);
             }
         }
+        if (!digits) {
+            return PARSE_NO_DIGITS | (start << PARSE_ERROR_BITS);
+        }
 
-        result = scaleWithOverflow(result, getScale() - (length - fractionalStart));
-        if (result == NaN) {
-            throw new ParseException("Overflow while scaling up", 0);
+        if (mantissa == 0) {
+            setRaw(0);
+            return PARSE_OK;
+        }
+        exponent += zeroes;
+        if (full) {
+            int shift = exponent + getScale();
+            if (shift > 0) {
+                // the dropped digit is within the scale, so the value is beyond the mantissa (i.e. long) range
+                return PARSE_OVERFLOW | (start << PARSE_ERROR_BITS);
+            } else if (shift == 0) {
+                // round by the dropped digits: 0.(dropped)... compared with 0.5 as (2 * dropped + sticky) / 20
+                long tail = 2 * dropped + (sticky ? 1 : 0);
+                setRaw(round(negative ? -mantissa : mantissa, negative ? -tail : tail, 20, roundingMode));
+                return isNaN() ? PARSE_OVERFLOW_OR_ROUNDING | (start << PARSE_ERROR_BITS) : PARSE_OK;
+            } else if (mantissa % 5 == 0) {
+                // rounded above the last digit of mantissa: the (always non-zero) tail only matters if the last digit
+                // is 0 or 5
+                mantissa++;
+            }
         }
-        return setRaw(negative ? -result : result);
+        fromLong(negative ? -mantissa : mantissa, -exponent, roundingMode);
+        return isNaN() ? PARSE_OVERFLOW_OR_ROUNDING | (start << PARSE_ERROR_BITS) : PARSE_OK;
     }
 
     private static final int MAX_LONG_SIZE = Long.toString(Long.MAX_VALUE).length();
-    private static int stringSize(long value) {
+
+    /**
+     * Number of decimal digits in a non-negative long
+     */
+    static int stringSize(long value) {
         long product = 10;
         for (int size = 1; size < MAX_LONG_SIZE; size++) {
             if (value < product)
@@ -0,0 +1,134 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Conversion of raw decimal columns (long arrays of {@link AbstractDecimal#getRaw} values) from and to
+ * the Apache Arrow decimal128 layout without Arrow dependency:
+ * <ul>
+ *     <li>values buffer: 16-byte little-endian two's complement integers (unscaled values),
+ *     the scale is a property of the Arrow field type, e.g. decimal128(19, scale)</li>
+ *     <li>validity bitmap: bit i (least significant bit first) of byte i / 8 is set if the value i is not null</li>
+ * </ul>
+ * {@link AbstractDecimal#NaN} is exported as null, nulls and values not fitting long are imported as NaN.
+ * Buffers are accessed from their positions with absolute indexes (the positions and orders are not changed).
+ * <p>
+ * No per-value allocation.
+ */
+public final class ArrowDecimal128 {
+    public static final int BYTE_WIDTH = 16;
+
+    private ArrowDecimal128() {
+    }
+
+    /**
+     * @return size of the values buffer (without padding)
+     */
+    public static int valuesSize(int length) {
+        return length * BYTE_WIDTH;
+    }
+
+    /**
+     * @return size of the validity bitmap (without padding)
+     */
+    public static int validitySize(int length) {
+        return (length + 7) >>> 3;
+    }
+
+    /**
+     * Writes raw values as decimal128 values of the same scale
+     *
+     * @param values buffer for {@link #valuesSize} bytes, nulls are written as zeroes
+     * @param validity buffer for {@link #validitySize} bytes
+     * @return number of nulls (NaNs)
+     */
+    public static int write(long[] src, int srcPos, int length, ByteBuffer values, ByteBuffer validity) {
+        ByteBuffer data = values.order() == ByteOrder.LITTLE_ENDIAN ? values :
+                values.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int base = values.position();
+        int validityBase = validity.position();
+        int nulls = 0;
+        int bits = 0;
+        for (int i = 0; i < length; i++) {
+            long raw = src[srcPos + i];
+            int offset = base + i * BYTE_WIDTH;
+            if (raw == AbstractDecimal.NaN) {
+                data.putLong(offset, 0);
+                data.putLong(offset + 8, 0);
+                nulls++;
+            } else {
+                data.putLong(offset, raw);
+                data.putLong(offset + 8, raw >> 63);
+                bits |= 1 << (i & 7);
+            }
+            if ((i & 7) == 7 || i == length - 1) {
+                validity.put(validityBase + (i >>> 3), (byte) bits);
+                bits = 0;
+            }
+        }
+        return nulls;
+    }
+
+    /**
+     * Reads decimal128 values of arrowScale to raw values of scale
+     *
+     * @param validity validity bitmap, null if all values are valid
+     * @param roundingMode required if arrowScale is greater than scale
+     * @return number of NaNs (nulls, values not fitting long or overflowing after rescaling)
+     */
+    public static int read(ByteBuffer values, ByteBuffer validity, int length, int arrowScale,
+                           long[] dst, int dstPos, int scale, RoundingMode roundingMode) {
+        ByteBuffer data = values.order() == ByteOrder.LITTLE_ENDIAN ? values :
+                values.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        RawDecimal target = null;
+        if (arrowScale != scale) {
+            DecimalColumns.checkScale(scale);
+            target = RawDecimal.scratch(scale);
+        }
+        int base = values.position();
+        int validityBase = validity != null ? validity.position() : 0;
+        int nans = 0;
+        for (int i = 0; i < length; i++) {
+            long raw = AbstractDecimal.NaN;
+            if (validity == null || (validity.get(validityBase + (i >>> 3)) & 1 << (i & 7)) != 0) {
+                int offset = base + i * BYTE_WIDTH;
+                long lo = data.getLong(offset);
+                long hi = data.getLong(offset + 8);
+                if (hi == lo >> 63) {
+                    raw = target != null && lo != AbstractDecimal.NaN ?
+                            target.fromLong(lo, arrowScale, roundingMode).getRaw() : lo;
+                }
+            }
+            dst[dstPos + i] = raw;
+            if (raw == AbstractDecimal.NaN) {
+                nans++;
+            }
+        }
+        return nans;
+    }
+}
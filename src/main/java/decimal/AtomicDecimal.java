@@ -0,0 +1,210 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.RoundingMode;
+
+/**
+ * Lock-free decimal cell with the scale of T, updated atomically with compare-and-set of the raw value.
+ * <p>
+ * Arithmetic has the same semantics as the corresponding {@link AbstractDecimal} methods (rounding,
+ * {@link AbstractDecimal#NaN} on overflow, NaN propagation), the new value is calculated from a snapshot and
+ * compare-and-set, retrying if the cell has been changed concurrently. Results are written to caller-provided
+ * instances, so the operations are non-allocating.
+ */
+public final class AtomicDecimal<T extends AbstractDecimal<T>> {
+    private static final VarHandle RAW;
+
+    static {
+        try {
+            RAW = MethodHandles.lookup().findVarHandle(AtomicDecimal.class, "raw", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final int scale;
+    private volatile long raw;
+
+    /**
+     * Creates a cell of the scale of T with the initial value
+     */
+    public AtomicDecimal(T initialValue) {
+        this.scale = initialValue.getScale();
+        this.raw = initialValue.getRaw();
+    }
+
+    public long getRaw() {
+        return raw;
+    }
+
+    public void setRaw(long raw) {
+        this.raw = raw;
+    }
+
+    /**
+     * @return target with the current value
+     */
+    public T get(T target) {
+        checkScale(target);
+        return target.setRaw(raw);
+    }
+
+    public void set(T value) {
+        checkScale(value);
+        raw = value.getRaw();
+    }
+
+    /**
+     * Sets the value and puts the previous one to target
+     *
+     * @return target
+     */
+    public T getAndSet(T value, T target) {
+        checkScale(value);
+        checkScale(target);
+        return target.setRaw((long) RAW.getAndSet(this, value.getRaw()));
+    }
+
+    /**
+     * Sets the value if the current one is (raw) equal to expected
+     *
+     * @return true if successful
+     */
+    public boolean compareAndSet(T expected, T value) {
+        checkScale(expected);
+        checkScale(value);
+        return RAW.compareAndSet(this, expected.getRaw(), value.getRaw());
+    }
+
+    public boolean compareAndSetRaw(long expected, long raw) {
+        return RAW.compareAndSet(this, expected, raw);
+    }
+
+    /**
+     * Atomically adds the value (of any scale), see {@link AbstractDecimal#add(AbstractDecimal, RoundingMode)}
+     *
+     * @return target with the new value
+     */
+    public T addAndGet(AbstractDecimal<?> value, RoundingMode roundingMode, T target) {
+        checkScale(target);
+        RawDecimal scratch = RawDecimal.scratch(scale);
+        long current;
+        long next;
+        do {
+            current = raw;
+            next = scratch.setRaw(current).add(value, roundingMode).getRaw();
+        } while (!RAW.compareAndSet(this, current, next));
+        return target.setRaw(next);
+    }
+
+    /**
+     * Atomically adds the value (of any scale), see {@link AbstractDecimal#add(AbstractDecimal, RoundingMode)}
+     *
+     * @return target with the previous value
+     */
+    public T getAndAdd(AbstractDecimal<?> value, RoundingMode roundingMode, T target) {
+        checkScale(target);
+        RawDecimal scratch = RawDecimal.scratch(scale);
+        long current;
+        do {
+            current = raw;
+        } while (!RAW.compareAndSet(this, current, scratch.setRaw(current).add(value, roundingMode).getRaw()));
+        return target.setRaw(current);
+    }
+
+    /**
+     * Atomically adds the value of the same scale (no rounding)
+     *
+     * @return target with the new value
+     */
+    public T addAndGet(T value, T target) {
+        checkScale(value);
+        return addAndGet(value, RoundingMode.UNNECESSARY, target);
+    }
+
+    /**
+     * Atomically subtracts the value (of any scale), see {@link AbstractDecimal#subtract(AbstractDecimal, RoundingMode)}
+     *
+     * @return target with the new value
+     */
+    public T subtractAndGet(AbstractDecimal<?> value, RoundingMode roundingMode, T target) {
+        checkScale(target);
+        RawDecimal scratch = RawDecimal.scratch(scale);
+        long current;
+        long next;
+        do {
+            current = raw;
+            next = scratch.setRaw(current).subtract(value, roundingMode).getRaw();
+        } while (!RAW.compareAndSet(this, current, next));
+        return target.setRaw(next);
+    }
+
+    /**
+     * Atomically multiplies by the value, see {@link AbstractDecimal#mul(AbstractDecimal, RoundingMode)}
+     *
+     * @return target with the new value
+     */
+    public T mulAndGet(AbstractDecimal<?> value, RoundingMode roundingMode, T target) {
+        checkScale(target);
+        RawDecimal scratch = RawDecimal.scratch(scale);
+        long current;
+        long next;
+        do {
+            current = raw;
+            next = scratch.setRaw(current).mul(value, roundingMode).getRaw();
+        } while (!RAW.compareAndSet(this, current, next));
+        return target.setRaw(next);
+    }
+
+    /**
+     * Atomically divides by the value, see {@link AbstractDecimal#div(AbstractDecimal, RoundingMode)}
+     *
+     * @return target with the new value
+     */
+    public T divAndGet(AbstractDecimal<?> value, RoundingMode roundingMode, T target) {
+        checkScale(target);
+        RawDecimal scratch = RawDecimal.scratch(scale);
+        long current;
+        long next;
+        do {
+            current = raw;
+            next = scratch.setRaw(current).div(value, roundingMode).getRaw();
+        } while (!RAW.compareAndSet(this, current, next));
+        return target.setRaw(next);
+    }
+
+    @Override
+    public String toString() {
+        return RawDecimal.scratch(scale).setRaw(raw).toString();
+    }
+
+    private void checkScale(AbstractDecimal<?> value) {
+        if (value.getScale() != scale) {
+            throw new IllegalArgumentException("Scales must be the same");
+        }
+    }
+}
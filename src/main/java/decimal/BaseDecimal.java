@@ -450,6 +450,36 @@ abstract class BaseDecimal extends Number {
         }
     }
 
+    /**
+     * same as {@link #downScale_63_31}, but doesn't calculate the remainder (doesn't modify the accumulator)
+     */
+    static long divPow10(long v_63, int scale) {
+        switch (scale) {
+            case 0:
+                return v_63;
+            case 1:
+                return v_63 / 10;
+            case 2:
+                return v_63 / 100;
+            case 3:
+                return v_63 / 1000;
+            case 4:
+                return v_63 / 10000;
+            case 5:
+                return v_63 / 100000;
+            case 6:
+                return v_63 / 1000000;
+            case 7:
+                return v_63 / 10000000;
+            case 8:
+                return v_63 / 100000000;
+            case 9:
+                return v_63 / 1000000000;
+            default:
+                throw new IllegalArgumentException("Incorrect scale: " + scale);
+        }
+    }
+
     /**
      * same as {@link #downScale_63_31}, but support unsigned longs (by shifting numerator and denominator by 1)
      */
@@ -496,6 +526,122 @@ abstract class BaseDecimal extends Number {
     }
 
 
+    /**
+     * Divides signed 128-bit n_hi:n_lo by d_63 * 10^scale and rounds the quotient once.
+     * The numerator is divided by 10^scale first (exactly, the remainder r1 is kept), then by d_63 (remainder r2),
+     * so the fraction is (r2 * 10^scale + r1) / (d_63 * 10^scale); it can't be passed to {@link #round} as is,
+     * so it's replaced with 1/4, 2/4 or 3/4 if it's below, exactly or above a half (enough for any rounding mode).
+     *
+     * @param d_63 must be positive
+     * @param scale -18..18, if negative the numerator is multiplied by 10^-scale instead
+     * @return rounded quotient, NaN if it overflows
+     */
+    static long divRound_127(long n_hi, long n_lo, long d_63, int scale, RoundingMode roundingMode) {
+        long sign = n_hi >> 63;
+        if (sign != 0) {
+            // |n|, unsigned (2^127 for the min value)
+            n_lo = -n_lo;
+            n_hi = n_lo == 0 ? -n_hi : ~n_hi;
+        }
+
+        if (scale < 0) {
+            long p_63 = LONG_POW10[-scale];
+            long hi_63 = n_hi * p_63;
+            if (Math.multiplyHigh(n_hi, p_63) != 0 || hi_63 < 0) {
+                return AbstractDecimal.NaN; // overflow: numerator >= 2^127
+            }
+            hi_63 += Math.multiplyHigh(n_lo, p_63) + (n_lo >> 63 & p_63); // unsigned high word of n_lo * p_63
+            if (hi_63 < 0) {
+                return AbstractDecimal.NaN; // overflow
+            }
+            n_hi = hi_63;
+            n_lo *= p_63;
+            scale = 0;
+        }
+
+        long p_63 = LONG_POW10[scale];
+        if (n_hi == 0 && n_lo >= 0 && d_63 <= Long.MAX_VALUE / p_63) {
+            // both fit long: simple division
+            d_63 *= p_63;
+            return round(negIf(n_lo / d_63, sign), negIf(n_lo % d_63, sign), d_63, roundingMode);
+        }
+
+        long r1_63 = 0;
+        if (scale > 0) {
+            long q_64 = div_128_64(Long.remainderUnsigned(n_hi, p_63), n_lo, p_63);
+            r1_63 = n_lo - q_64 * p_63;
+            n_hi = Long.divideUnsigned(n_hi, p_63);
+            n_lo = q_64;
+        }
+        if (Long.compareUnsigned(n_hi, d_63) >= 0) {
+            return AbstractDecimal.NaN; // overflow: quotient >= 2^64
+        }
+        long q_63 = div_128_64(n_hi, n_lo, d_63);
+        if (q_63 < 0) {
+            return AbstractDecimal.NaN; // overflow
+        }
+        long r_63 = n_lo - q_63 * d_63;
+
+        if (r1_63 != 0) {
+            // 2 * (r2 * 10^scale + r1) vs d * 10^scale, both < 2^126
+            long x_64 = r_63 * p_63;
+            long x_63 = Math.multiplyHigh(r_63, p_63);
+            long sum_64 = x_64 + r1_63;
+            x_63 += Long.compareUnsigned(sum_64, x_64) < 0 ? 1 : 0;
+            x_63 = (x_63 << 1) | (sum_64 >>> 63);
+            x_64 = sum_64 << 1;
+            long y_63 = Math.multiplyHigh(d_63, p_63);
+            long y_64 = d_63 * p_63;
+            int compare = x_63 != y_63 ? Long.compare(x_63, y_63) : Long.compareUnsigned(x_64, y_64);
+            r_63 = 2 + Integer.signum(compare);
+            d_63 = 4;
+        }
+        return round(negIf(q_63, sign), negIf(r_63, sign), d_63, roundingMode);
+    }
+
+    /**
+     * Unsigned division of 128-bit hi_64:lo_64 by d_64 (see "Hacker's Delight", divlu): d is normalized (shifted
+     * until the highest bit is set), then 3 half-words are divided by 2 half-words twice, each approximate quotient
+     * needs no more than 2 corrections down. The remainder is lo_64 - quotient * d_64.
+     *
+     * @param hi_64 must be less than d_64 (unsigned), so the quotient fits 64 bits
+     * @return unsigned quotient
+     */
+    static long div_128_64(long hi_64, long lo_64, long d_64) {
+        int shift = Long.numberOfLeadingZeros(d_64);
+        if (shift > 0) {
+            d_64 <<= shift;
+            hi_64 = (hi_64 << shift) | (lo_64 >>> (64 - shift));
+            lo_64 <<= shift;
+        }
+        long d_32h = hi_32(d_64);
+        long d_32l = lo_32(d_64);
+        long l_32h = hi_32(lo_64);
+        long l_32l = lo_32(lo_64);
+
+        long q_33 = Long.divideUnsigned(hi_64, d_32h);
+        long r_64 = hi_64 - q_33 * d_32h;
+        while (q_33 >= WORD_CARRY || Long.compareUnsigned(q_33 * d_32l, (r_64 << WORD_BITS) | l_32h) > 0) {
+            q_33--;
+            r_64 += d_32h;
+            if (r_64 >= WORD_CARRY) {
+                break;
+            }
+        }
+        long m_64 = (hi_64 << WORD_BITS) + l_32h - q_33 * d_64; // middle remainder
+
+        long p_33 = Long.divideUnsigned(m_64, d_32h);
+        r_64 = m_64 - p_33 * d_32h;
+        while (p_33 >= WORD_CARRY || Long.compareUnsigned(p_33 * d_32l, (r_64 << WORD_BITS) | l_32l) > 0) {
+            p_33--;
+            r_64 += d_32h;
+            if (r_64 >= WORD_CARRY) {
+                break;
+            }
+        }
+        return (q_33 << WORD_BITS) | p_33;
+    }
+
     /**
      * Round common (and mixed) fractions, represented as "whole + numerator / denominator".
      * Ca not take NaN, but can produce NaN (e.g. failed UNNECESSARY or rounding up +-MAX_VALUE)
@@ -510,16 +656,11 @@ abstract class BaseDecimal extends Number {
             case UNNECESSARY: // 7
                 return numerator == 0 ? whole : AbstractDecimal.NaN;
             case HALF_EVEN: // 6
-                denominator -= whole & 0x1; // HALF_UP for odd, making denominator < numerator * 2, else HALF_DOWN
-                // fall through
+                return roundHalf(whole, numerator, denominator, (whole & 0x1) != 0); // HALF_UP for odd
             case HALF_DOWN: // 5
-                denominator /= 2;
-                return numerator <= denominator && numerator >= -denominator ? whole :
-                    whole + Long.signum(numerator);
+                return roundHalf(whole, numerator, denominator, false);
             case HALF_UP: // 4
-                denominator /= 2;
-                return numerator < denominator && numerator > -denominator ? whole :
-                    whole + Long.signum(numerator);
+                return roundHalf(whole, numerator, denominator, true);
             case FLOOR: // 3
                 return whole + (numerator >> 63); // decrement if negative
             case CEILING: // 2
@@ -533,6 +674,18 @@ abstract class BaseDecimal extends Number {
         }
     }
 
+    /**
+     * Rounds towards the nearest neighbour, compares |numerator| with denominator - |numerator| (no overflow),
+     * which is exact for odd denominators too
+     *
+     * @param tieUp whether to round up (away from zero) if |numerator| is exactly a half of the denominator
+     */
+    private static long roundHalf(long whole, long numerator, long denominator, boolean tieUp) {
+        long n = numerator < 0 ? -numerator : numerator;
+        long rest = denominator - n;
+        return n > rest || n == rest && tieUp ? whole + Long.signum(numerator) : whole;
+    }
+
     /**
      * Compare 2 96-bit numbers
      */
@@ -560,24 +713,5 @@ abstract class BaseDecimal extends Number {
     static long negIf(long v, long sign) {
         return (v ^ sign) - sign;
     }
-
-    @Override
-    public boolean equals(Object o) {
-        if (this == o) {
-            return true;
-        }
-        if (o == null || getClass() != o.getClass()) {
-            return false;
-        }
-
-        BaseDecimal that = (BaseDecimal) o;
-
-        return a == that.a;
-    }
-
-    @Override
-    public int hashCode() {
-        return (int) (a ^ (a >>> 32));
-    }
 }
 
@@ -0,0 +1,170 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Flyweight decimal (SBE-style) with the raw value stored as a little-endian long at an offset of a byte array
+ * or a {@link ByteBuffer} instead of the heap, so that fields of binary messages can be read, computed and written
+ * in place, e.g.
+ * <pre>
+ * public class BufferPrice extends BufferDecimal&lt;BufferPrice&gt; {
+ *     protected int getScale() {
+ *         return 8;
+ *     }
+ * }
+ *
+ * price.wrap(message, PRICE_OFFSET).mulRD(quantity); // updates the message
+ * </pre>
+ * All operations read and write the slot with {@link #getRaw} and {@link #setRaw}, the heap field is used only
+ * as the accumulator of intermediate results. A flyweight must be wrapped before use and can be re-wrapped
+ * any number of times (non-allocating). {@link #clone} creates another flyweight over the same slot.
+ * <p>
+ * Buffers are accessed with absolute indexes (the position and the order are not changed).
+ * The memory-ordering accessors ({@link #getRawAcquire} etc.) require the slot to be 8-byte aligned
+ * ({@link IllegalStateException} otherwise).
+ */
+public abstract class BufferDecimal<T extends BufferDecimal<T>> extends AbstractDecimal<T> {
+    private static final VarHandle ARRAY = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle BUFFER = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private byte[] array;
+    private ByteBuffer buffer;
+    private int offset;
+
+    /**
+     * Points this to 8 bytes of the array starting from offset
+     */
+    public T wrap(byte[] array, int offset) {
+        if (offset < 0 || offset > array.length - 8) {
+            throw new IndexOutOfBoundsException("Offset " + offset + " is out of " + array.length + " bytes");
+        }
+        this.array = array;
+        this.buffer = null;
+        this.offset = offset;
+        return self();
+    }
+
+    /**
+     * Points this to 8 bytes of the buffer starting from offset (absolute)
+     */
+    public T wrap(ByteBuffer buffer, int offset) {
+        if (offset < 0 || offset > buffer.limit() - 8) {
+            throw new IndexOutOfBoundsException("Offset " + offset + " is out of " + buffer.limit() + " bytes");
+        }
+        this.array = null;
+        this.buffer = buffer;
+        this.offset = offset;
+        return self();
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Flyweights are not serializable, copy the value to a heap decimal instead
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        throw new NotSerializableException(getClass().getName());
+    }
+
+    @Override
+    public long getRaw() {
+        return array != null ? (long) ARRAY.get(array, offset) : (long) BUFFER.get(buffer, offset);
+    }
+
+    @Override
+    public T setRaw(long raw) {
+        assert !frozen : "Frozen decimal must not be changed";
+        if (array != null) {
+            ARRAY.set(array, offset, raw);
+        } else {
+            BUFFER.set(buffer, offset, raw);
+        }
+        return self();
+    }
+
+    @Override
+    public long getRawVolatile() {
+        return array != null ? (long) ARRAY.getVolatile(array, offset) : (long) BUFFER.getVolatile(buffer, offset);
+    }
+
+    @Override
+    public T setRawVolatile(long raw) {
+        assert !frozen : "Frozen decimal must not be changed";
+        if (array != null) {
+            ARRAY.setVolatile(array, offset, raw);
+        } else {
+            BUFFER.setVolatile(buffer, offset, raw);
+        }
+        return self();
+    }
+
+    @Override
+    public long getRawAcquire() {
+        return array != null ? (long) ARRAY.getAcquire(array, offset) : (long) BUFFER.getAcquire(buffer, offset);
+    }
+
+    @Override
+    public T setRawRelease(long raw) {
+        assert !frozen : "Frozen decimal must not be changed";
+        if (array != null) {
+            ARRAY.setRelease(array, offset, raw);
+        } else {
+            BUFFER.setRelease(buffer, offset, raw);
+        }
+        return self();
+    }
+
+    @Override
+    public long getRawOpaque() {
+        return array != null ? (long) ARRAY.getOpaque(array, offset) : (long) BUFFER.getOpaque(buffer, offset);
+    }
+
+    @Override
+    public T setRawOpaque(long raw) {
+        assert !frozen : "Frozen decimal must not be changed";
+        if (array != null) {
+            ARRAY.setOpaque(array, offset, raw);
+        } else {
+            BUFFER.setOpaque(buffer, offset, raw);
+        }
+        return self();
+    }
+
+    @Override
+    public boolean compareAndSetRaw(long expected, long raw) {
+        assert !frozen : "Frozen decimal must not be changed";
+        return array != null ? ARRAY.compareAndSet(array, offset, expected, raw) :
+                BUFFER.compareAndSet(buffer, offset, expected, raw);
+    }
+}
@@ -0,0 +1,353 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import java.io.IOException;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Loads selected columns of a CSV (or any delimiter-separated) text file into raw decimal columns.
+ * <p>
+ * The file is memory-mapped and split into chunks at line boundaries, chunks are parsed in parallel in a
+ * {@link ForkJoinPool} directly from the mapped bytes (see {@link AsciiSequence}), no Strings are created.
+ * Each column is parsed as a decimal of the given type (its scale), including exponents and "NaN",
+ * and the raw values are returned (see {@link AbstractDecimal#getRaw}).
+ * <p>
+ * Malformed rows (missing fields, unparseable values, overflow or unexpected rounding) do not cause exceptions,
+ * the affected fields are set to {@link AbstractDecimal#NaN} and the rows are reported in {@link Result}.
+ * Empty lines are skipped, "\r\n" line endings, spaces around fields and double quotes around values are supported,
+ * quoted values containing delimiters are not.
+ * <p>
+ * Thread-safe, the loader can be reused for multiple files.
+ */
+public final class CsvDecimalLoader {
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+    private static final int MAX_CHUNK_SIZE = Integer.MAX_VALUE - 8; // single mapping limit
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int SCAN_BUFFER_SIZE = 8192;
+    private static final int INITIAL_ROWS = 1 << 16;
+
+    private final byte delimiter;
+    private final int headerLines;
+    private final int[] slots; // column slot by field index, -1 if not loaded
+    private final AbstractDecimal<?>[] types;
+    private final RoundingMode roundingMode;
+    private final int minChunkSize;
+
+    /**
+     * @param delimiter field delimiter, e.g. ','
+     * @param headerLines number of lines to skip at the beginning of the file
+     * @param columns zero-based indexes of the fields to load
+     * @param types decimal types of the columns, defining the scale (the instances are not changed)
+     * @param roundingMode used if values have more fraction digits than the scale of the column
+     */
+    public CsvDecimalLoader(char delimiter, int headerLines, int[] columns, AbstractDecimal<?>[] types,
+                            RoundingMode roundingMode) {
+        this(delimiter, headerLines, columns, types, roundingMode, MIN_CHUNK_SIZE);
+    }
+
+    CsvDecimalLoader(char delimiter, int headerLines, int[] columns, AbstractDecimal<?>[] types,
+                     RoundingMode roundingMode, int minChunkSize) {
+        if (delimiter > 127 || delimiter == '\n' || delimiter == '\r' || delimiter == '"') {
+            throw new IllegalArgumentException("Unsupported delimiter: " + delimiter);
+        }
+        if (columns.length == 0 || columns.length != types.length) {
+            throw new IllegalArgumentException("Number of columns and types must be the same and positive");
+        }
+        int fields = 0;
+        for (int column : columns) {
+            if (column < 0) {
+                throw new IllegalArgumentException("Negative column: " + column);
+            }
+            fields = Math.max(fields, column + 1);
+        }
+        this.slots = new int[fields];
+        Arrays.fill(slots, -1);
+        for (int i = 0; i < columns.length; i++) {
+            if (slots[columns[i]] != -1) {
+                throw new IllegalArgumentException("Duplicate column: " + columns[i]);
+            }
+            slots[columns[i]] = i;
+        }
+
+        this.delimiter = (byte) delimiter;
+        this.headerLines = headerLines;
+        this.types = types.clone();
+        this.roundingMode = roundingMode;
+        this.minChunkSize = minChunkSize;
+    }
+
+    /**
+     * Loads the file using the common pool
+     */
+    public Result load(Path file) throws IOException {
+        return load(file, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Loads the file using the given pool
+     */
+    public Result load(Path file, ForkJoinPool pool) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long start = skipLines(channel, 0, headerLines);
+
+            int chunkCount = (int) Math.max(1, Math.min((size - start) / minChunkSize,
+                    (long) pool.getParallelism() * CHUNKS_PER_THREAD));
+            chunkCount = (int) Math.max(chunkCount, (size - start) / MAX_CHUNK_SIZE + 1);
+            long[] bounds = new long[chunkCount + 1];
+            bounds[0] = start;
+            for (int i = 1; i < chunkCount; i++) {
+                long nominal = start + (size - start) * i / chunkCount;
+                bounds[i] = Math.max(bounds[i - 1], skipLines(channel, nominal - 1, 1)); // previous char can be '\n'
+            }
+            bounds[chunkCount] = size;
+
+            List<Callable<Chunk>> tasks = new ArrayList<>(chunkCount);
+            for (int i = 0; i < chunkCount; i++) {
+                if (bounds[i + 1] - bounds[i] > MAX_CHUNK_SIZE) {
+                    throw new IOException("Line is too long at " + bounds[i]);
+                }
+                if (bounds[i + 1] > bounds[i]) {
+                    tasks.add(new ChunkParser(channel.map(FileChannel.MapMode.READ_ONLY, bounds[i], bounds[i + 1] - bounds[i])));
+                }
+            }
+
+            List<Chunk> chunks = new ArrayList<>(tasks.size());
+            for (Future<Chunk> future : pool.invokeAll(tasks)) {
+                chunks.add(future.get());
+            }
+            return new Result(chunks, types.length);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to parse", e.getCause());
+        }
+    }
+
+    /**
+     * @return position after "count" line breaks starting from position, or the end of file
+     */
+    private static long skipLines(FileChannel channel, long position, int count) throws IOException {
+        if (count == 0) {
+            return position;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        while (channel.read(buffer, position) > 0) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                position++;
+                if (buffer.get() == '\n' && --count == 0) {
+                    return position;
+                }
+            }
+            buffer.clear();
+        }
+        return channel.size();
+    }
+
+    /**
+     * Parses a mapped chunk of whole lines
+     */
+    private final class ChunkParser implements Callable<Chunk> {
+        private final MappedByteBuffer buffer;
+        private final AsciiSequence sequence = new AsciiSequence();
+        private final AbstractDecimal<?>[] decimals = new AbstractDecimal<?>[types.length];
+        private final boolean[] found = new boolean[types.length];
+
+        ChunkParser(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+            for (int i = 0; i < types.length; i++) {
+                decimals[i] = types[i].clone();
+            }
+        }
+
+        @Override
+        public Chunk call() {
+            int limit = buffer.limit();
+            Chunk chunk = new Chunk(types.length, Math.min(limit / 16 + 1, INITIAL_ROWS));
+            int lineStart = 0;
+            while (lineStart < limit) {
+                int lineEnd = lineStart;
+                while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                    lineEnd++;
+                }
+                int next = lineEnd + 1;
+                if (lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r') {
+                    lineEnd--;
+                }
+                if (lineEnd > lineStart) {
+                    parseLine(chunk, lineStart, lineEnd);
+                }
+                lineStart = next;
+            }
+            return chunk;
+        }
+
+        private void parseLine(Chunk chunk, int start, int end) {
+            int row = chunk.addRow();
+            boolean malformed = false;
+            Arrays.fill(found, false);
+
+            int field = 0;
+            int fieldStart = start;
+            for (int i = start; i <= end && field < slots.length; i++) {
+                if (i < end && buffer.get(i) != delimiter) {
+                    continue;
+                }
+                int slot = slots[field++];
+                if (slot >= 0) {
+                    found[slot] = true;
+                    if (!parseField(fieldStart, i, decimals[slot])) {
+                        malformed = true;
+                    }
+                    chunk.columns[slot][row] = decimals[slot].getRaw();
+                }
+                fieldStart = i + 1;
+            }
+
+            for (int slot = 0; slot < found.length; slot++) {
+                if (!found[slot]) {
+                    malformed = true;
+                    chunk.columns[slot][row] = AbstractDecimal.NaN;
+                }
+            }
+            if (malformed) {
+                chunk.addMalformed(row);
+            }
+        }
+
+        private boolean parseField(int start, int end, AbstractDecimal<?> decimal) {
+            while (start < end && buffer.get(start) == ' ') {
+                start++;
+            }
+            while (end > start && buffer.get(end - 1) == ' ') {
+                end--;
+            }
+            if (end - start >= 2 && buffer.get(start) == '"' && buffer.get(end - 1) == '"') {
+                start++;
+                end--;
+            }
+            return decimal.tryParse(sequence.wrap(buffer, start, end - start), 0, end - start, roundingMode);
+        }
+    }
+
+    /**
+     * Parsed columns of a single chunk
+     */
+    private static final class Chunk {
+        private long[][] columns;
+        private int rows;
+        private int[] malformed = new int[16];
+        private int malformedCount;
+
+        Chunk(int columnCount, int capacity) {
+            columns = new long[columnCount][capacity];
+        }
+
+        int addRow() {
+            if (rows == columns[0].length) {
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i] = Arrays.copyOf(columns[i], rows * 2);
+                }
+            }
+            return rows++;
+        }
+
+        void addMalformed(int row) {
+            if (malformedCount == malformed.length) {
+                malformed = Arrays.copyOf(malformed, malformedCount * 2);
+            }
+            malformed[malformedCount++] = row;
+        }
+    }
+
+    /**
+     * Loaded raw columns in the order of the columns passed to the loader, and malformed row indexes
+     */
+    public static final class Result {
+        private final long[][] columns;
+        private final int rows;
+        private final int[] malformedRows;
+
+        private Result(List<Chunk> chunks, int columnCount) {
+            int rows = 0;
+            int malformed = 0;
+            for (Chunk chunk : chunks) {
+                rows += chunk.rows;
+                malformed += chunk.malformedCount;
+            }
+
+            this.columns = new long[columnCount][rows];
+            this.rows = rows;
+            this.malformedRows = new int[malformed];
+
+            int row = 0;
+            malformed = 0;
+            for (Chunk chunk : chunks) {
+                for (int i = 0; i < columnCount; i++) {
+                    System.arraycopy(chunk.columns[i], 0, columns[i], row, chunk.rows);
+                }
+                for (int i = 0; i < chunk.malformedCount; i++) {
+                    malformedRows[malformed++] = row + chunk.malformed[i];
+                }
+                row += chunk.rows;
+            }
+        }
+
+        /**
+         * Number of loaded rows (non-empty lines excluding header), including malformed
+         */
+        public int rows() {
+            return rows;
+        }
+
+        /**
+         * Raw values of the column by its index in the loader columns
+         */
+        public long[] column(int index) {
+            return columns[index];
+        }
+
+        /**
+         * Indexes of malformed rows in ascending order (the fields which could not be parsed are {@link AbstractDecimal#NaN})
+         */
+        public int[] malformedRows() {
+            return malformedRows;
+        }
+    }
+}
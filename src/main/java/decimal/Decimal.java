@@ -30,14 +30,15 @@ import java.text.ParseException;
  * Values from -9223372036.854775807 to 9223372036.854775807 (inclusive), which should be good enough for small numbers.
  */
 public class Decimal extends AbstractDecimal<Decimal> {
+    public static final DecimalConstants<Decimal> CONSTANTS = new DecimalConstants<>(Decimal::new);
     /**
-     * Must not be changed!
-      */
-    public static final Decimal MIN_VALUE = new Decimal().setRaw(-Long.MAX_VALUE);
+     * Frozen, see {@link #freeze}
+     */
+    public static final Decimal MIN_VALUE = CONSTANTS.minValue();
     /**
-     * Must not be changed!
+     * Frozen, see {@link #freeze}
      */
-    public static final Decimal MAX_VALUE = new Decimal().setRaw(Long.MAX_VALUE);
+    public static final Decimal MAX_VALUE = CONSTANTS.maxValue();
 
     @Override
     protected int getScale() {
@@ -0,0 +1,189 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.RoundingMode;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Striped decimal total with the scale of T for heavily contended updates, similar to {@link java.util.concurrent.atomic.LongAdder}.
+ * <p>
+ * Raw values are added to one of the cells (chosen by a per-thread probe, moved to another cell on contention), each
+ * cell sitting on its own cache lines. An addition which would overflow its cell is folded into a 128-bit overflow
+ * base under a lock, so the cells never wrap and {@link #sum(AbstractDecimal)} is exact as long as the total fits:
+ * it is {@link AbstractDecimal#NaN} only if the total does not fit or a NaN has been added.
+ * <p>
+ * As with LongAdder, sum() is not an atomic snapshot when called concurrently with updates.
+ */
+public final class DecimalAdder<T extends AbstractDecimal<T>> {
+    private static final VarHandle CELLS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final int STRIDE = 16; // longs, 2 cache lines (adjacent line prefetch)
+    private static final ThreadLocal<int[]> PROBE = ThreadLocal.withInitial(() -> new int[] {ThreadLocalRandom.current().nextInt() | 1});
+
+    private final int scale;
+    private final long[] cells;
+    private final int mask;
+    private volatile boolean nan;
+    // overflow base, guarded by this
+    private long baseHigh;
+    private long baseLow;
+
+    /**
+     * Creates an adder of the scale of T with the initial value
+     */
+    public DecimalAdder(T initialValue) {
+        this(initialValue, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * @param stripes number of cells, rounded up to a power of 2
+     */
+    public DecimalAdder(T initialValue, int stripes) {
+        if (stripes <= 0 || stripes > 1 << 16) {
+            throw new IllegalArgumentException("Invalid number of stripes: " + stripes);
+        }
+        int count = Integer.highestOneBit(stripes - 1) << 1;
+        if (stripes == 1) {
+            count = 1;
+        }
+        this.scale = initialValue.getScale();
+        this.cells = new long[(count + 2) * STRIDE];
+        this.mask = count - 1;
+        addRaw(initialValue.getRaw());
+    }
+
+    /**
+     * Adds the value of the same scale
+     */
+    public void add(T value) {
+        checkScale(value);
+        addRaw(value.getRaw());
+    }
+
+    /**
+     * Adds the value of any scale, rounded to the scale of T
+     */
+    public void add(AbstractDecimal<?> value, RoundingMode roundingMode) {
+        addRaw(RawDecimal.scratch(scale).setRaw(0).add(value, roundingMode).getRaw());
+    }
+
+    /**
+     * Adds the raw value of the scale of T
+     */
+    public void addRaw(long raw) {
+        if (raw == AbstractDecimal.NaN) {
+            nan = true;
+            return;
+        }
+        int[] probe = PROBE.get();
+        int h = probe[0];
+        while (true) {
+            int index = ((h & mask) + 1) * STRIDE;
+            long current = (long) CELLS.getVolatile(cells, index);
+            long next = current + raw;
+            if (((current ^ next) & (raw ^ next)) < 0) {
+                addToBase(raw);
+                return;
+            }
+            if (CELLS.compareAndSet(cells, index, current, next)) {
+                return;
+            }
+            h ^= h << 13; // contended, move to another cell
+            h ^= h >>> 17;
+            h ^= h << 5;
+            probe[0] = h;
+        }
+    }
+
+    /**
+     * @return target with the total, NaN if a NaN was added or the total does not fit
+     */
+    public T sum(T target) {
+        checkScale(target);
+        return target.setRaw(sumRaw());
+    }
+
+    public long sumRaw() {
+        if (nan) {
+            return AbstractDecimal.NaN;
+        }
+        long high;
+        long low;
+        synchronized (this) {
+            high = baseHigh;
+            low = baseLow;
+        }
+        for (int i = 0; i <= mask; i++) {
+            long cell = (long) CELLS.getVolatile(cells, (i + 1) * STRIDE);
+            long sum = low + cell;
+            high += (cell >> 63) + (Long.compareUnsigned(sum, low) < 0 ? 1 : 0);
+            low = sum;
+        }
+        return high == low >> 63 && low != AbstractDecimal.NaN ? low : AbstractDecimal.NaN;
+    }
+
+    /**
+     * Resets the total to zero, additions made concurrently may be lost
+     */
+    public void reset() {
+        for (int i = 0; i <= mask; i++) {
+            CELLS.setVolatile(cells, (i + 1) * STRIDE, 0L);
+        }
+        synchronized (this) {
+            baseHigh = 0;
+            baseLow = 0;
+        }
+        nan = false;
+    }
+
+    /**
+     * {@link #sum(AbstractDecimal)} followed by {@link #reset()}, additions made concurrently may be lost
+     *
+     * @return target with the total
+     */
+    public T sumThenReset(T target) {
+        sum(target);
+        reset();
+        return target;
+    }
+
+    @Override
+    public String toString() {
+        return RawDecimal.scratch(scale).setRaw(sumRaw()).toString();
+    }
+
+    private synchronized void addToBase(long raw) {
+        long sum = baseLow + raw;
+        baseHigh += (raw >> 63) + (Long.compareUnsigned(sum, baseLow) < 0 ? 1 : 0);
+        baseLow = sum;
+    }
+
+    private void checkScale(AbstractDecimal<?> value) {
+        if (value.getScale() != scale) {
+            throw new IllegalArgumentException("Scales must be the same");
+        }
+    }
+}
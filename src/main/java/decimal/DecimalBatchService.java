@@ -0,0 +1,332 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Calculation of a formula over raw columns (or single values) of the declared scales, e.g. for pricing requests
+ * fanned out to virtual threads: each caller evaluates its own batch in its own thread, there are no temporaries,
+ * no shared mutable state and no locks, so a single instance can be used by any number of threads.
+ * <p>
+ * The exact result of the whole formula is rounded once, e.g. {@link Formula#MUL_DIV} of 1, 1 and 3 at scale 0
+ * with HALF_UP is 0, not 1 / 3 * 1 rounded twice. The intermediate values are 128-bit, so the result is NaN only
+ * if it doesn't fit the result scale (or an argument is NaN, or the divisor is 0).
+ */
+public final class DecimalBatchService {
+    /**
+     * Formula of the arguments a, b (and c)
+     */
+    public enum Formula {
+        /**
+         * a + b
+         */
+        ADD(2),
+        /**
+         * a - b
+         */
+        SUBTRACT(2),
+        /**
+         * a * b
+         */
+        MUL(2),
+        /**
+         * a / b
+         */
+        DIV(2),
+        /**
+         * a * b / c, e.g. a notional in another currency (price * quantity / rate)
+         */
+        MUL_DIV(3),
+        /**
+         * a * b * c, e.g. a margin (price * quantity * margin rate)
+         */
+        MARGIN(3);
+
+        final int arguments;
+
+        Formula(int arguments) {
+            this.arguments = arguments;
+        }
+    }
+
+    private final Formula formula;
+    private final int aScale;
+    private final int bScale;
+    private final int cScale;
+    private final int resultScale;
+    private final RoundingMode roundingMode;
+
+    private final long aFactor; // ADD, SUBTRACT: a and b are brought to the same scale
+    private final long bFactor;
+    private final long divisor; // MARGIN: the part of 10^shift beyond 10^18
+    private final int shift; // the numerator is divided by 10^shift (multiplied if negative)
+
+    /**
+     * For formulas with 2 arguments
+     *
+     * @throws IllegalArgumentException if the formula has 3 arguments or a scale is not 0..9
+     */
+    public DecimalBatchService(Formula formula, int aScale, int bScale, int resultScale, RoundingMode roundingMode) {
+        this(formula, 2, aScale, bScale, 0, resultScale, roundingMode);
+    }
+
+    /**
+     * For formulas with 3 arguments
+     *
+     * @throws IllegalArgumentException if the formula has 2 arguments or a scale is not 0..9
+     */
+    public DecimalBatchService(Formula formula, int aScale, int bScale, int cScale, int resultScale,
+                               RoundingMode roundingMode) {
+        this(formula, 3, aScale, bScale, cScale, resultScale, roundingMode);
+    }
+
+    private DecimalBatchService(Formula formula, int arguments, int aScale, int bScale, int cScale, int resultScale,
+                                RoundingMode roundingMode) {
+        if (formula.arguments != arguments) {
+            throw new IllegalArgumentException(formula + " takes " + formula.arguments + " arguments");
+        }
+        DecimalColumns.checkScale(aScale);
+        DecimalColumns.checkScale(bScale);
+        DecimalColumns.checkScale(cScale);
+        DecimalColumns.checkScale(resultScale);
+        this.formula = formula;
+        this.aScale = aScale;
+        this.bScale = bScale;
+        this.cScale = cScale;
+        this.resultScale = resultScale;
+        this.roundingMode = roundingMode;
+
+        int scale = Math.max(aScale, bScale);
+        this.aFactor = BaseDecimal.LONG_POW10[scale - aScale];
+        this.bFactor = BaseDecimal.LONG_POW10[scale - bScale];
+        int shift;
+        switch (formula) {
+            case ADD:
+            case SUBTRACT:
+                shift = scale - resultScale;
+                break;
+            case MUL:
+                shift = aScale + bScale - resultScale;
+                break;
+            case DIV:
+                shift = aScale - bScale - resultScale;
+                break;
+            case MUL_DIV:
+                shift = aScale + bScale - cScale - resultScale;
+                break;
+            case MARGIN:
+                shift = aScale + bScale + cScale - resultScale;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown formula: " + formula);
+        }
+        this.divisor = shift > 18 ? BaseDecimal.LONG_POW10[shift - 18] : 1;
+        this.shift = Math.min(shift, 18);
+    }
+
+    /**
+     * Calculates a formula with 2 arguments: results[i] = formula(a[i], b[i]) for i in 0..count-1
+     */
+    public void calculate(long[] a, long[] b, long[] results, int count) {
+        checkArguments(2);
+        switch (formula) {
+            case ADD:
+                for (int i = 0; i < count; i++) {
+                    results[i] = add(a[i], b[i]);
+                }
+                break;
+            case SUBTRACT:
+                for (int i = 0; i < count; i++) {
+                    results[i] = subtract(a[i], b[i]);
+                }
+                break;
+            case MUL:
+                for (int i = 0; i < count; i++) {
+                    results[i] = mul(a[i], b[i]);
+                }
+                break;
+            default:
+                for (int i = 0; i < count; i++) {
+                    results[i] = div(a[i], b[i]);
+                }
+                break;
+        }
+    }
+
+    /**
+     * Calculates a formula with 3 arguments: results[i] = formula(a[i], b[i], c[i]) for i in 0..count-1
+     */
+    public void calculate(long[] a, long[] b, long[] c, long[] results, int count) {
+        checkArguments(3);
+        if (formula == Formula.MUL_DIV) {
+            for (int i = 0; i < count; i++) {
+                results[i] = mulDiv(a[i], b[i], c[i]);
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                results[i] = margin(a[i], b[i], c[i]);
+            }
+        }
+    }
+
+    /**
+     * Calculates a formula with 2 arguments
+     *
+     * @throws IllegalArgumentException if the scales are not the declared ones
+     */
+    public <T extends AbstractDecimal<T>> T calculate(AbstractDecimal<?> a, AbstractDecimal<?> b, T result) {
+        checkScale(aScale, a);
+        checkScale(bScale, b);
+        checkScale(resultScale, result);
+        return result.setRaw(calculateRaw(a.getRaw(), b.getRaw()));
+    }
+
+    /**
+     * Calculates a formula with 3 arguments
+     *
+     * @throws IllegalArgumentException if the scales are not the declared ones
+     */
+    public <T extends AbstractDecimal<T>> T calculate(AbstractDecimal<?> a, AbstractDecimal<?> b,
+                                                      AbstractDecimal<?> c, T result) {
+        checkScale(aScale, a);
+        checkScale(bScale, b);
+        checkScale(cScale, c);
+        checkScale(resultScale, result);
+        return result.setRaw(calculateRaw(a.getRaw(), b.getRaw(), c.getRaw()));
+    }
+
+    /**
+     * Calculates a formula with 2 raw arguments
+     */
+    public long calculateRaw(long a, long b) {
+        checkArguments(2);
+        switch (formula) {
+            case ADD:
+                return add(a, b);
+            case SUBTRACT:
+                return subtract(a, b);
+            case MUL:
+                return mul(a, b);
+            default:
+                return div(a, b);
+        }
+    }
+
+    /**
+     * Calculates a formula with 3 raw arguments
+     */
+    public long calculateRaw(long a, long b, long c) {
+        checkArguments(3);
+        return formula == Formula.MUL_DIV ? mulDiv(a, b, c) : margin(a, b, c);
+    }
+
+    private long add(long a, long b) {
+        if (a == AbstractDecimal.NaN || b == AbstractDecimal.NaN) {
+            return AbstractDecimal.NaN;
+        }
+        long x_64 = a * aFactor;
+        long y_64 = b * bFactor;
+        long sum_64 = x_64 + y_64;
+        long sum_63 = Math.multiplyHigh(a, aFactor) + Math.multiplyHigh(b, bFactor) +
+                (Long.compareUnsigned(sum_64, x_64) < 0 ? 1 : 0);
+        return BaseDecimal.divRound_127(sum_63, sum_64, 1, shift, roundingMode);
+    }
+
+    private long subtract(long a, long b) {
+        return add(a, b == AbstractDecimal.NaN ? b : -b);
+    }
+
+    private long mul(long a, long b) {
+        if (a == AbstractDecimal.NaN || b == AbstractDecimal.NaN) {
+            return AbstractDecimal.NaN;
+        }
+        return BaseDecimal.divRound_127(Math.multiplyHigh(a, b), a * b, 1, shift, roundingMode);
+    }
+
+    private long div(long a, long b) {
+        if (a == AbstractDecimal.NaN || b == AbstractDecimal.NaN || b == 0) {
+            return AbstractDecimal.NaN;
+        }
+        if (b < 0) {
+            a = -a;
+            b = -b;
+        }
+        return BaseDecimal.divRound_127(a >> 63, a, b, shift, roundingMode);
+    }
+
+    private long mulDiv(long a, long b, long c) {
+        if (a == AbstractDecimal.NaN || b == AbstractDecimal.NaN || c == AbstractDecimal.NaN || c == 0) {
+            return AbstractDecimal.NaN;
+        }
+        if (c < 0) {
+            a = -a;
+            c = -c;
+        }
+        return BaseDecimal.divRound_127(Math.multiplyHigh(a, b), a * b, c, shift, roundingMode);
+    }
+
+    private long margin(long a, long b, long c) {
+        if (a == AbstractDecimal.NaN || b == AbstractDecimal.NaN || c == AbstractDecimal.NaN) {
+            return AbstractDecimal.NaN;
+        }
+        // a product of 2 arguments fitting long, then multiplied by the third one
+        long x = a * b;
+        long y = c;
+        if (Math.multiplyHigh(a, b) != x >> 63) {
+            x = b * c;
+            y = a;
+            if (Math.multiplyHigh(b, c) != x >> 63) {
+                x = a * c;
+                y = b;
+                if (Math.multiplyHigh(a, c) != x >> 63) {
+                    return marginExact(a, b, c);
+                }
+            }
+        }
+        return BaseDecimal.divRound_127(Math.multiplyHigh(x, y), x * y, divisor, shift, roundingMode);
+    }
+
+    /**
+     * Allocating, only if no 2 of the arguments have a product fitting long
+     */
+    private long marginExact(long a, long b, long c) {
+        BigDecimal margin = BigDecimal.valueOf(a, aScale).multiply(BigDecimal.valueOf(b, bScale))
+                .multiply(BigDecimal.valueOf(c, cScale));
+        return new RawDecimal(resultScale).fromBigDecimal(margin, roundingMode).getRaw();
+    }
+
+    private void checkArguments(int arguments) {
+        if (formula.arguments != arguments) {
+            throw new IllegalStateException(formula + " takes " + formula.arguments + " arguments");
+        }
+    }
+
+    private static void checkScale(int expected, AbstractDecimal<?> value) {
+        if (value.getScale() != expected) {
+            throw new IllegalArgumentException("Scales must be the same");
+        }
+    }
+}
@@ -0,0 +1,347 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+
+/**
+ * Compact binary encodings of decimals and raw decimal columns (long arrays of {@link AbstractDecimal#getRaw} values):
+ * <ul>
+ *     <li>var long: zigzag varint of the raw value, 1 byte for |raw| &lt; 64, 2 bytes for |raw| &lt; 8192 and so on,
+ *     up to 10 bytes ({@link AbstractDecimal#NaN} takes 10 bytes)</li>
+ *     <li>int: fixed 4 bytes, raw value must fit int, {@link AbstractDecimal#NaN} is written as {@link Integer#MIN_VALUE}</li>
+ *     <li>long: fixed 8 bytes</li>
+ *     <li>scale-tagged: 1 byte of scale followed by the var long, the reader rescales to the scale of the target</li>
+ * </ul>
+ * byte[] methods take an offset and return the offset after the value (writes and scale-tagged reads) or require
+ * {@link #varLongSize} to skip the value (other reads, the encoding is canonical), fixed-width values are big-endian.
+ * ByteBuffer methods are relative (advance the position), fixed-width values use the buffer order.
+ * DataInput/DataOutput methods (e.g. object streams) read and write the var long.
+ * <p>
+ * Non-allocating. Malformed var longs result in {@link IllegalArgumentException}.
+ */
+public final class DecimalCodec {
+    private static final int MAX_VAR_LONG_SIZE = 10;
+
+    private DecimalCodec() {
+    }
+
+    /**
+     * @return number of bytes of the var long encoding of raw
+     */
+    public static int varLongSize(long raw) {
+        return (70 - Long.numberOfLeadingZeros(zigzag(raw) | 1)) / 7;
+    }
+
+    public static int putVarLong(long raw, byte[] dst, int offset) {
+        long v = zigzag(raw);
+        while ((v & ~0x7FL) != 0) {
+            dst[offset++] = (byte) (v | 0x80);
+            v >>>= 7;
+        }
+        dst[offset++] = (byte) v;
+        return offset;
+    }
+
+    public static void putVarLong(long raw, ByteBuffer dst) {
+        long v = zigzag(raw);
+        while ((v & ~0x7FL) != 0) {
+            dst.put((byte) (v | 0x80));
+            v >>>= 7;
+        }
+        dst.put((byte) v);
+    }
+
+    public static long getVarLong(byte[] src, int offset) {
+        return getVarLong(src, null, offset);
+    }
+
+    public static long getVarLong(ByteBuffer src) {
+        int position = src.position();
+        long raw = getVarLong(null, src, position);
+        src.position(position + varLongSize(raw));
+        return raw;
+    }
+
+    public static void putVarLong(long raw, DataOutput out) throws IOException {
+        long v = zigzag(raw);
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) v | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    public static long getVarLong(DataInput in) throws IOException {
+        long v = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift == 7 * MAX_VAR_LONG_SIZE) {
+                throw new IllegalArgumentException("Too long var long");
+            }
+            b = in.readByte();
+            v |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        checkCanonical(b, shift, -1);
+        return v >>> 1 ^ -(v & 1);
+    }
+
+    /**
+     * @throws ArithmeticException if raw doesn't fit int
+     */
+    public static int putInt(long raw, byte[] dst, int offset) {
+        int v = toInt(raw);
+        dst[offset] = (byte) (v >>> 24);
+        dst[offset + 1] = (byte) (v >>> 16);
+        dst[offset + 2] = (byte) (v >>> 8);
+        dst[offset + 3] = (byte) v;
+        return offset + 4;
+    }
+
+    /**
+     * @throws ArithmeticException if raw doesn't fit int
+     */
+    public static void putInt(long raw, ByteBuffer dst) {
+        dst.putInt(toInt(raw));
+    }
+
+    public static long getInt(byte[] src, int offset) {
+        return fromInt(src[offset] << 24 | (src[offset + 1] & 0xFF) << 16 | (src[offset + 2] & 0xFF) << 8 |
+                src[offset + 3] & 0xFF);
+    }
+
+    public static long getInt(ByteBuffer src) {
+        return fromInt(src.getInt());
+    }
+
+    public static int putLong(long raw, byte[] dst, int offset) {
+        for (int i = 7; i >= 0; i--) {
+            dst[offset + i] = (byte) raw;
+            raw >>>= 8;
+        }
+        return offset + 8;
+    }
+
+    public static long getLong(byte[] src, int offset) {
+        long raw = 0;
+        for (int i = 0; i < 8; i++) {
+            raw = raw << 8 | src[offset + i] & 0xFF;
+        }
+        return raw;
+    }
+
+    /**
+     * @return number of bytes of the scale-tagged encoding of value
+     */
+    public static int size(AbstractDecimal<?> value) {
+        return 1 + varLongSize(value.getRaw());
+    }
+
+    public static int put(AbstractDecimal<?> value, byte[] dst, int offset) {
+        dst[offset] = (byte) value.getScale();
+        return putVarLong(value.getRaw(), dst, offset + 1);
+    }
+
+    public static void put(AbstractDecimal<?> value, ByteBuffer dst) {
+        dst.put((byte) value.getScale());
+        putVarLong(value.getRaw(), dst);
+    }
+
+    /**
+     * Reads a scale-tagged value into target
+     *
+     * @param roundingMode required if the scale of the value is greater than of the target
+     * @return offset after the value (the size of the target may differ if the value is rescaled)
+     */
+    public static <T extends AbstractDecimal<T>> int get(byte[] src, int offset, T target, RoundingMode roundingMode) {
+        long raw = getVarLong(src, offset + 1);
+        rescale(src[offset], raw, target, roundingMode);
+        return offset + 1 + varLongSize(raw);
+    }
+
+    /**
+     * Reads a scale-tagged value into target
+     *
+     * @param roundingMode required if the scale of the value is greater than of the target
+     * @return target
+     */
+    public static <T extends AbstractDecimal<T>> T get(ByteBuffer src, T target, RoundingMode roundingMode) {
+        int scale = src.get();
+        return rescale(scale, getVarLong(src), target, roundingMode);
+    }
+
+    /**
+     * Writes raw values as var longs
+     *
+     * @return offset after the last value
+     */
+    public static int putVarLongs(long[] src, int srcPos, int length, byte[] dst, int offset) {
+        for (int i = 0; i < length; i++) {
+            offset = putVarLong(src[srcPos + i], dst, offset);
+        }
+        return offset;
+    }
+
+    public static void putVarLongs(long[] src, int srcPos, int length, ByteBuffer dst) {
+        for (int i = 0; i < length; i++) {
+            putVarLong(src[srcPos + i], dst);
+        }
+    }
+
+    /**
+     * Reads var longs written by {@link #putVarLongs}
+     *
+     * @return offset after the last value
+     */
+    public static int getVarLongs(byte[] src, int offset, long[] dst, int dstPos, int length) {
+        for (int i = 0; i < length; i++) {
+            long raw = getVarLong(src, null, offset);
+            dst[dstPos + i] = raw;
+            offset += varLongSize(raw);
+        }
+        return offset;
+    }
+
+    public static void getVarLongs(ByteBuffer src, long[] dst, int dstPos, int length) {
+        int position = src.position();
+        for (int i = 0; i < length; i++) {
+            long raw = getVarLong(null, src, position);
+            dst[dstPos + i] = raw;
+            position += varLongSize(raw);
+        }
+        src.position(position);
+    }
+
+    /**
+     * @return number of bytes of the var long encoding of the values
+     */
+    public static int varLongsSize(long[] src, int srcPos, int length) {
+        int size = 0;
+        for (int i = 0; i < length; i++) {
+            size += varLongSize(src[srcPos + i]);
+        }
+        return size;
+    }
+
+    /**
+     * Writes raw values as fixed 4-byte ints
+     *
+     * @throws ArithmeticException if any raw value doesn't fit int
+     */
+    public static void putInts(long[] src, int srcPos, int length, ByteBuffer dst) {
+        for (int i = 0; i < length; i++) {
+            putInt(src[srcPos + i], dst);
+        }
+    }
+
+    /**
+     * Writes raw values as fixed 4-byte ints
+     *
+     * @return offset after the last value
+     * @throws ArithmeticException if any raw value doesn't fit int
+     */
+    public static int putInts(long[] src, int srcPos, int length, byte[] dst, int offset) {
+        for (int i = 0; i < length; i++) {
+            offset = putInt(src[srcPos + i], dst, offset);
+        }
+        return offset;
+    }
+
+    public static void getInts(ByteBuffer src, long[] dst, int dstPos, int length) {
+        for (int i = 0; i < length; i++) {
+            dst[dstPos + i] = getInt(src);
+        }
+    }
+
+    /**
+     * Reads ints written by {@link #putInts}
+     *
+     * @return offset after the last value
+     */
+    public static int getInts(byte[] src, int offset, long[] dst, int dstPos, int length) {
+        for (int i = 0; i < length; i++) {
+            dst[dstPos + i] = getInt(src, offset);
+            offset += 4;
+        }
+        return offset;
+    }
+
+    private static long zigzag(long raw) {
+        return raw << 1 ^ raw >> 63;
+    }
+
+    private static long getVarLong(byte[] array, ByteBuffer buffer, int offset) {
+        long v = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift == 7 * MAX_VAR_LONG_SIZE) {
+                throw new IllegalArgumentException("Too long var long at " + offset);
+            }
+            b = array != null ? array[offset + shift / 7] : buffer.get(offset + shift / 7);
+            v |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        checkCanonical(b, shift, offset);
+        return v >>> 1 ^ -(v & 1);
+    }
+
+    /**
+     * @param b last byte
+     * @param shift 7 * number of bytes
+     * @param offset of the value for the message, -1 if unknown
+     */
+    private static void checkCanonical(byte b, int shift, int offset) {
+        if (b == 0 && shift > 7 || shift == 7 * MAX_VAR_LONG_SIZE && b > 1) {
+            throw new IllegalArgumentException("Non-canonical var long" + (offset >= 0 ? " at " + offset : ""));
+        }
+    }
+
+    private static int toInt(long raw) {
+        if (raw == AbstractDecimal.NaN) {
+            return Integer.MIN_VALUE;
+        }
+        if (raw <= Integer.MIN_VALUE || raw > Integer.MAX_VALUE) {
+            throw new ArithmeticException("Doesn't fit int: " + raw);
+        }
+        return (int) raw;
+    }
+
+    private static long fromInt(int v) {
+        return v == Integer.MIN_VALUE ? AbstractDecimal.NaN : v;
+    }
+
+    private static <T extends AbstractDecimal<T>> T rescale(int scale, long raw, T target, RoundingMode roundingMode) {
+        if (raw == AbstractDecimal.NaN) {
+            return target.setRaw(raw);
+        }
+        return target.fromLong(raw, scale, roundingMode);
+    }
+}
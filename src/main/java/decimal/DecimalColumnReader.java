@@ -0,0 +1,226 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static decimal.DecimalColumnWriter.*;
+
+/**
+ * Reads columnar files written by {@link DecimalColumnWriter}. The zone map is loaded on opening,
+ * blocks are read with positional {@link FileChannel} reads through a reusable direct buffer into long arrays,
+ * so that they can be processed with {@link DecimalColumns} kernels, no per-value objects are created.
+ * <p>
+ * Not thread-safe (the buffer is shared), use a reader per thread.
+ */
+public final class DecimalColumnReader implements Closeable {
+    private final FileChannel channel;
+    private final int[] scales;
+    private final int blockSize;
+    private final long rowCount;
+    private final int blockCount;
+    private final int[] counts; // by block
+    private final int[] nanCounts; // by block * columns + column
+    private final long[] mins;
+    private final long[] maxs;
+    private final ByteBuffer buffer;
+    private final long[] scratch; // for scans
+
+    public DecimalColumnReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            ByteBuffer header = read(0, HEADER_SIZE);
+            if (size < HEADER_SIZE + TRAILER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a decimal column file: " + file);
+            }
+            int columnCount = header.getInt();
+            blockSize = header.getInt();
+            if (columnCount <= 0 || blockSize <= 0 || blockSize > Integer.MAX_VALUE / 8) {
+                throw new IOException("Corrupted header: " + file);
+            }
+            scales = new int[columnCount];
+            read(HEADER_SIZE, 4 * columnCount).asIntBuffer().get(scales);
+
+            ByteBuffer trailer = read(size - TRAILER_SIZE, TRAILER_SIZE);
+            long zoneMapOffset = trailer.getLong();
+            rowCount = trailer.getLong();
+            blockCount = trailer.getInt();
+            int zoneMapSize = blockCount * (4 + columnCount * ZONE_SIZE);
+            if (trailer.getInt() != MAGIC || blockCount < 0 || zoneMapOffset + zoneMapSize != size - TRAILER_SIZE) {
+                throw new IOException("Corrupted trailer: " + file);
+            }
+
+            ByteBuffer zoneMap = read(zoneMapOffset, zoneMapSize);
+            counts = new int[blockCount];
+            nanCounts = new int[blockCount * columnCount];
+            mins = new long[nanCounts.length];
+            maxs = new long[nanCounts.length];
+            for (int block = 0; block < blockCount; block++) {
+                counts[block] = zoneMap.getInt();
+                for (int column = 0; column < columnCount; column++) {
+                    int zone = block * columnCount + column;
+                    nanCounts[zone] = zoneMap.getInt();
+                    mins[zone] = zoneMap.getLong();
+                    maxs[zone] = zoneMap.getLong();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        buffer = ByteBuffer.allocateDirect(blockSize * 8).order(ByteOrder.LITTLE_ENDIAN);
+        scratch = new long[blockSize];
+    }
+
+    public int getColumnCount() {
+        return scales.length;
+    }
+
+    public int getScale(int column) {
+        return scales[column];
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    /**
+     * @return number of rows in the block
+     */
+    public int getCount(int block) {
+        return counts[block];
+    }
+
+    public int getNaNCount(int block, int column) {
+        return nanCounts[zone(block, column)];
+    }
+
+    /**
+     * @return minimum of the column in the block ignoring NaNs ({@link AbstractDecimal#NaN} if all are NaN)
+     */
+    public long getMin(int block, int column) {
+        return mins[zone(block, column)];
+    }
+
+    /**
+     * @return maximum of the column in the block ignoring NaNs ({@link AbstractDecimal#NaN} if all are NaN)
+     */
+    public long getMax(int block, int column) {
+        return maxs[zone(block, column)];
+    }
+
+    /**
+     * @return false if the block has no values of the column from min to max inclusive (by the zone map)
+     */
+    public boolean mayContain(int block, int column, long min, long max) {
+        int zone = zone(block, column);
+        return nanCounts[zone] < counts[block] && maxs[zone] >= min && mins[zone] <= max;
+    }
+
+    /**
+     * Reads raw values of the column in the block to dst, there must be space for {@link #getCount} values
+     *
+     * @return number of values read
+     */
+    public int readBlock(int block, int column, long[] dst, int dstPos) throws IOException {
+        checkColumn(column);
+        int count = counts[block];
+        long position = headerSize(scales.length) + (long) block * blockSize * scales.length * 8 +
+                (long) column * count * 8;
+        buffer.clear().limit(count * 8);
+        readFully(buffer, position);
+        for (int i = 0; i < count; i++) {
+            dst[dstPos + i] = buffer.getLong(8 * i);
+        }
+        return count;
+    }
+
+    /**
+     * Counts values of the column from min to max inclusive, reading only blocks partially overlapping the range
+     */
+    public long countInRange(int column, long min, long max) throws IOException {
+        long result = 0;
+        for (int block = 0; block < blockCount; block++) {
+            int zone = zone(block, column);
+            if (!mayContain(block, column, min, max)) {
+                continue;
+            }
+            if (nanCounts[zone] == 0 && mins[zone] >= min && maxs[zone] <= max) {
+                result += counts[block]; // whole block matches
+            } else {
+                int count = readBlock(block, column, scratch, 0);
+                result += DecimalColumns.countInRange(scratch, 0, count, min, max);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int zone(int block, int column) {
+        checkColumn(column);
+        return block * scales.length + column;
+    }
+
+    private void checkColumn(int column) {
+        if (column < 0 || column >= scales.length) {
+            throw new IndexOutOfBoundsException("Column: " + column);
+        }
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer result = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(result, position);
+        result.flip();
+        return result;
+    }
+
+    private void readFully(ByteBuffer dst, long position) throws IOException {
+        while (dst.hasRemaining()) {
+            int read = channel.read(dst, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+            position += read;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Writes raw decimal columns (see {@link AbstractDecimal#getRaw}) to a columnar file readable with
+ * {@link DecimalColumnReader}.
+ * <p>
+ * Rows are grouped into blocks of {@link #getBlockSize} rows, each block stores the values of each column
+ * contiguously followed by another column. The zone map (number of rows of each block, NaN count, min and max
+ * of each column of each block) is written on {@link #close}, so that range scans can skip whole blocks.
+ * <p>
+ * Format (little-endian): magic (int), version (int), number of columns (int), block size (int), scales (int each),
+ * blocks (long values), zone map (per block: number of rows (int), per column: NaN count (int), min (long),
+ * max (long)), trailer: zone map offset (long), number of rows (long), number of blocks (int), magic (int).
+ * <p>
+ * Not thread-safe.
+ */
+public final class DecimalColumnWriter implements Closeable {
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+    static final int MAGIC = 0x4C4F4344; // "DCOL"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16; // without scales
+    static final int ZONE_SIZE = 4 + 8 + 8; // per column
+    static final int TRAILER_SIZE = 8 + 8 + 4 + 4;
+
+    private final FileChannel channel;
+    private final int[] scales;
+    private final int blockSize;
+    private final long[][] columns;
+    private final ByteBuffer buffer;
+    private int count; // rows in the current block
+    private long rows;
+    private ByteBuffer zoneMap;
+    private int blockCount;
+    private boolean closed;
+
+    public DecimalColumnWriter(Path file, int[] scales) throws IOException {
+        this(file, scales, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates (or truncates) the file
+     *
+     * @param scales scales of the columns
+     * @param blockSize number of rows per block
+     */
+    public DecimalColumnWriter(Path file, int[] scales, int blockSize) throws IOException {
+        if (scales.length == 0) {
+            throw new IllegalArgumentException("No columns");
+        }
+        for (int scale : scales) {
+            DecimalColumns.checkScale(scale);
+        }
+        if (blockSize <= 0 || blockSize > Integer.MAX_VALUE / 8) {
+            throw new IllegalArgumentException("Incorrect block size: " + blockSize);
+        }
+        this.scales = scales.clone();
+        this.blockSize = blockSize;
+        this.columns = new long[scales.length][blockSize];
+        this.buffer = ByteBuffer.allocateDirect(blockSize * 8).order(ByteOrder.LITTLE_ENDIAN);
+        this.zoneMap = ByteBuffer.allocate(16 * (4 + scales.length * ZONE_SIZE)).order(ByteOrder.LITTLE_ENDIAN);
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + 4 * scales.length).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(scales.length).putInt(blockSize);
+        for (int scale : scales) {
+            header.putInt(scale);
+        }
+        header.flip();
+        write(header);
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * @return number of rows added
+     */
+    public long getRowCount() {
+        return rows;
+    }
+
+    /**
+     * Adds a row, row[i] is the raw value of the column i
+     */
+    public void addRow(long[] row) throws IOException {
+        checkOpen();
+        if (row.length != columns.length) {
+            throw new IllegalArgumentException("Expected " + columns.length + " values: " + row.length);
+        }
+        for (int i = 0; i < row.length; i++) {
+            columns[i][count] = row[i];
+        }
+        rows++;
+        if (++count == blockSize) {
+            writeBlock();
+        }
+    }
+
+    /**
+     * Adds rows from columns, columns[i][srcPos..srcPos + length) are raw values of the column i
+     */
+    public void addRows(long[][] columns, int srcPos, int length) throws IOException {
+        checkOpen();
+        if (columns.length != this.columns.length) {
+            throw new IllegalArgumentException("Expected " + this.columns.length + " columns: " + columns.length);
+        }
+        while (length > 0) {
+            int chunk = Math.min(length, blockSize - count);
+            for (int i = 0; i < columns.length; i++) {
+                System.arraycopy(columns[i], srcPos, this.columns[i], count, chunk);
+            }
+            count += chunk;
+            rows += chunk;
+            srcPos += chunk;
+            length -= chunk;
+            if (count == blockSize) {
+                writeBlock();
+            }
+        }
+    }
+
+    /**
+     * Writes the last block, the zone map and closes the file
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (count > 0) {
+                writeBlock();
+            }
+            long zoneMapOffset = channel.position();
+            zoneMap.flip();
+            write(zoneMap);
+
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            trailer.putLong(zoneMapOffset).putLong(rows).putInt(blockCount).putInt(MAGIC);
+            trailer.flip();
+            write(trailer);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        if (zoneMap.remaining() < 4 + columns.length * ZONE_SIZE) {
+            ByteBuffer zoneMap = ByteBuffer.allocate(this.zoneMap.capacity() * 2).order(ByteOrder.LITTLE_ENDIAN);
+            this.zoneMap.flip();
+            this.zoneMap = zoneMap.put(this.zoneMap);
+        }
+        zoneMap.putInt(count);
+        for (long[] column : columns) {
+            zoneMap.putInt(DecimalColumns.nanCount(column, 0, count));
+            zoneMap.putLong(DecimalColumns.min(column, 0, count));
+            zoneMap.putLong(DecimalColumns.max(column, 0, count));
+
+            buffer.clear();
+            buffer.asLongBuffer().put(column, 0, count);
+            buffer.limit(count * 8);
+            write(buffer);
+        }
+        blockCount++;
+        count = 0;
+    }
+
+    private void write(ByteBuffer src) throws IOException {
+        while (src.hasRemaining()) {
+            channel.write(src);
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Closed");
+        }
+    }
+
+    static int headerSize(int columnCount) {
+        return HEADER_SIZE + 4 * columnCount;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.RoundingMode;
+
+/**
+ * Bulk operations over raw decimal columns, i.e. long arrays of {@link AbstractDecimal#getRaw} values of the same scale.
+ * Results are the same as of the corresponding {@link AbstractDecimal} methods, including {@link AbstractDecimal#NaN}.
+ * Non-allocating.
+ */
+public final class DecimalColumns {
+    private static final VarHandle RAW = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private DecimalColumns() {
+    }
+
+    /**
+     * Raw value with acquire semantics, see {@link AbstractDecimal#getRawAcquire}
+     */
+    public static long getRawAcquire(long[] raws, int index) {
+        return (long) RAW.getAcquire(raws, index);
+    }
+
+    /**
+     * Sets raw value with release semantics, see {@link AbstractDecimal#setRawRelease}
+     */
+    public static void setRawRelease(long[] raws, int index, long raw) {
+        RAW.setRelease(raws, index, raw);
+    }
+
+    /**
+     * Raw value with opaque semantics, see {@link AbstractDecimal#getRawOpaque}
+     */
+    public static long getRawOpaque(long[] raws, int index) {
+        return (long) RAW.getOpaque(raws, index);
+    }
+
+    public static void setRawOpaque(long[] raws, int index, long raw) {
+        RAW.setOpaque(raws, index, raw);
+    }
+
+    public static boolean compareAndSetRaw(long[] raws, int index, long expected, long raw) {
+        return RAW.compareAndSet(raws, index, expected, raw);
+    }
+
+    /**
+     * Converts raw values to the closest doubles (correctly rounded), see {@link AbstractDecimal#toDouble}
+     */
+    public static void toDouble(long[] src, int srcPos, double[] dst, int dstPos, int length, int scale) {
+        checkScale(scale);
+        for (int i = 0; i < length; i++) {
+            dst[dstPos + i] = DoubleConversion.toDouble(src[srcPos + i], scale);
+        }
+    }
+
+    /**
+     * Converts doubles to raw values exactly, see {@link AbstractDecimal#fromDouble}
+     */
+    public static void fromDouble(double[] src, int srcPos, long[] dst, int dstPos, int length, int scale,
+                                  RoundingMode roundingMode) {
+        checkScale(scale);
+        for (int i = 0; i < length; i++) {
+            dst[dstPos + i] = DoubleConversion.toRaw(src[srcPos + i], scale, roundingMode);
+        }
+    }
+
+    /**
+     * @return minimum of the values ignoring {@link AbstractDecimal#NaN}, NaN if all values are NaN or length is 0
+     */
+    public static long min(long[] src, int srcPos, int length) {
+        long min = Long.MAX_VALUE;
+        boolean found = false;
+        for (int i = 0; i < length; i++) {
+            long raw = src[srcPos + i];
+            if (raw != AbstractDecimal.NaN) {
+                min = Math.min(min, raw);
+                found = true;
+            }
+        }
+        return found ? min : AbstractDecimal.NaN;
+    }
+
+    /**
+     * @return maximum of the values ignoring {@link AbstractDecimal#NaN}, NaN if all values are NaN or length is 0
+     */
+    public static long max(long[] src, int srcPos, int length) {
+        long max = AbstractDecimal.NaN; // less than any other value
+        for (int i = 0; i < length; i++) {
+            max = Math.max(max, src[srcPos + i]);
+        }
+        return max;
+    }
+
+    /**
+     * @return number of {@link AbstractDecimal#NaN} values
+     */
+    public static int nanCount(long[] src, int srcPos, int length) {
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (src[srcPos + i] == AbstractDecimal.NaN) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return number of values from min to max inclusive ({@link AbstractDecimal#NaN} is never counted)
+     */
+    public static int countInRange(long[] src, int srcPos, int length, long min, long max) {
+        if (min == AbstractDecimal.NaN) {
+            min = -Long.MAX_VALUE;
+        }
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            long raw = src[srcPos + i];
+            count += raw >= min && raw <= max ? 1 : 0;
+        }
+        return count;
+    }
+
+    /**
+     * Puts indexes (relative to srcPos) of values from min to max inclusive to dst
+     * ({@link AbstractDecimal#NaN} is never selected)
+     *
+     * @return number of selected values
+     */
+    public static int selectInRange(long[] src, int srcPos, int length, long min, long max, int[] dst, int dstPos) {
+        if (min == AbstractDecimal.NaN) {
+            min = -Long.MAX_VALUE;
+        }
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            long raw = src[srcPos + i];
+            if (raw >= min && raw <= max) {
+                dst[dstPos + count++] = i;
+            }
+        }
+        return count;
+    }
+
+    static void checkScale(int scale) {
+        if (scale < 0 || scale > 9) {
+            throw new IllegalArgumentException("Incorrect scale: " + scale);
+        }
+    }
+}
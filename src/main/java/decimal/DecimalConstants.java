@@ -0,0 +1,85 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import java.util.function.Supplier;
+
+/**
+ * Pool of common {@link AbstractDecimal#freeze frozen} values of T, which can be shared and used as arguments
+ * without defensive copies, e.g. {@code price.div(Price.CONSTANTS.basisPointDivisor(), RoundingMode.HALF_UP)}.
+ * Typically a static field of the decimal class.
+ */
+public final class DecimalConstants<T extends AbstractDecimal<T>> {
+    private final T zero;
+    private final T one;
+    private final T hundred;
+    private final T basisPointDivisor;
+    private final T minValue;
+    private final T maxValue;
+
+    /**
+     * @param factory creates new instances of T
+     */
+    public DecimalConstants(Supplier<T> factory) {
+        zero = factory.get().fromLong(0).freeze();
+        one = factory.get().fromLong(1).freeze();
+        hundred = factory.get().fromLong(100).freeze();
+        basisPointDivisor = factory.get().fromLong(10000).freeze();
+        minValue = factory.get().setRaw(-Long.MAX_VALUE).freeze();
+        maxValue = factory.get().setRaw(Long.MAX_VALUE).freeze();
+    }
+
+    public T zero() {
+        return zero;
+    }
+
+    public T one() {
+        return one;
+    }
+
+    /**
+     * 100, percent divisor
+     */
+    public T hundred() {
+        return hundred;
+    }
+
+    /**
+     * 10000, basis point divisor
+     */
+    public T basisPointDivisor() {
+        return basisPointDivisor;
+    }
+
+    /**
+     * The smallest value which is not {@link AbstractDecimal#NaN}
+     */
+    public T minValue() {
+        return minValue;
+    }
+
+    public T maxValue() {
+        return maxValue;
+    }
+}
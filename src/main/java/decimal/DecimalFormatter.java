@@ -0,0 +1,380 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Reusable and thread-safe (immutable) ASCII formatter for {@link AbstractDecimal} values, supporting:<ul>
+ *     <li>Minimum and maximum number of fraction digits (trailing zeroes are stripped down to the minimum,
+ *     extra digits are rounded with the given rounding mode)</li>
+ *     <li>Fixed width with left or right padding, e.g. for fixed-width files</li>
+ *     <li>Grouping separators in the integer part, e.g. "1,234,567.00"</li>
+ * </ul>
+ * The default instance formats exactly as {@link AbstractDecimal#toStringBuilder}.
+ * All the settings are precomputed, formatting writes directly to byte arrays and heap {@link ByteBuffer}s in a single
+ * pass, char arrays, direct buffers and {@link StringBuilder}s get a copy of the formatted digits (from a per-thread
+ * buffer). Non-allocating (unless explicitly specified).
+ * <p>
+ * If a value does not fit the fixed width, the whole field is filled with '#', so fixed-width layout is never broken.
+ * NaN values are written as "NaN", also if rounding to the maximum fraction digits fails
+ * (e.g. {@link RoundingMode#UNNECESSARY}).
+ */
+public final class DecimalFormatter {
+    private static final int SCALE = -1; // use the scale of the value
+    private static final char OVERFLOW = '#';
+    private static final byte[] NAN = {'N', 'a', 'N'};
+    // sign, 19 digits, 6 grouping separators, decimal separator and up to 18 fraction digits fit
+    private static final ThreadLocal<byte[]> DIGITS = ThreadLocal.withInitial(() -> new byte[64]);
+
+    private final int minFractionDigits;
+    private final int maxFractionDigits;
+    private final RoundingMode roundingMode;
+    private final int width;
+    private final char padding;
+    private final boolean leftAligned;
+    private final char groupingSeparator;
+    private final char decimalSeparator;
+
+    /**
+     * Creates a formatter with the default settings: exactly {@link AbstractDecimal#getScale} fraction digits,
+     * no padding and no grouping, '.' as a decimal separator.
+     */
+    public DecimalFormatter() {
+        this(SCALE, SCALE, RoundingMode.DOWN, 0, ' ', false, (char) 0, '.');
+    }
+
+    private DecimalFormatter(int minFractionDigits, int maxFractionDigits, RoundingMode roundingMode, int width,
+                             char padding, boolean leftAligned, char groupingSeparator, char decimalSeparator) {
+        if (maxFractionDigits != SCALE && (maxFractionDigits < 0 || maxFractionDigits > 9)) {
+            throw new IllegalArgumentException("Maximum fraction digits must be between 0 and 9: " + maxFractionDigits);
+        }
+        if (minFractionDigits != SCALE && (minFractionDigits < 0 || minFractionDigits > 18)) {
+            throw new IllegalArgumentException("Minimum fraction digits must be between 0 and 18: " + minFractionDigits);
+        }
+        if (minFractionDigits != SCALE && maxFractionDigits != SCALE && minFractionDigits > maxFractionDigits) {
+            throw new IllegalArgumentException("Minimum fraction digits must not be greater than maximum");
+        }
+        if (width < 0) {
+            throw new IllegalArgumentException("Negative width: " + width);
+        }
+        checkAscii(padding);
+        checkAscii(groupingSeparator);
+        checkAscii(decimalSeparator);
+
+        this.minFractionDigits = minFractionDigits;
+        this.maxFractionDigits = maxFractionDigits;
+        this.roundingMode = roundingMode;
+        this.width = width;
+        this.padding = padding;
+        this.leftAligned = leftAligned;
+        this.groupingSeparator = groupingSeparator;
+        this.decimalSeparator = decimalSeparator;
+    }
+
+    /**
+     * Copy of this formatter with the minimum number of fraction digits, trailing zeroes are stripped down to it.
+     * Can be greater than the scale of the value, in which case the value is padded with zeroes.
+     */
+    public DecimalFormatter withMinFractionDigits(int minFractionDigits) {
+        return new DecimalFormatter(minFractionDigits, maxFractionDigits, roundingMode, width, padding, leftAligned,
+                groupingSeparator, decimalSeparator);
+    }
+
+    /**
+     * Copy of this formatter with the maximum number of fraction digits, the value is rounded DOWN if it has more.
+     */
+    public DecimalFormatter withMaxFractionDigits(int maxFractionDigits) {
+        return withMaxFractionDigits(maxFractionDigits, RoundingMode.DOWN);
+    }
+
+    /**
+     * Copy of this formatter with the maximum number of fraction digits and the rounding mode used if the value has more.
+     */
+    public DecimalFormatter withMaxFractionDigits(int maxFractionDigits, RoundingMode roundingMode) {
+        return new DecimalFormatter(minFractionDigits, maxFractionDigits, roundingMode, width, padding, leftAligned,
+                groupingSeparator, decimalSeparator);
+    }
+
+    /**
+     * Copy of this formatter with the fixed width, the value is right-aligned and padded from the left.
+     * If padding is '0', the sign is written before the padding, e.g. "-0001.50"
+     * Width 0 means no padding.
+     */
+    public DecimalFormatter withWidth(int width, char padding) {
+        return new DecimalFormatter(minFractionDigits, maxFractionDigits, roundingMode, width, padding, false,
+                groupingSeparator, decimalSeparator);
+    }
+
+    /**
+     * Copy of this formatter with the fixed width, the value is left-aligned and padded from the right.
+     * Width 0 means no padding.
+     */
+    public DecimalFormatter withLeftAlignedWidth(int width, char padding) {
+        return new DecimalFormatter(minFractionDigits, maxFractionDigits, roundingMode, width, padding, true,
+                groupingSeparator, decimalSeparator);
+    }
+
+    /**
+     * Copy of this formatter with a grouping separator inserted between thousands, e.g. ','.
+     * 0 means no grouping.
+     */
+    public DecimalFormatter withGroupingSeparator(char groupingSeparator) {
+        return new DecimalFormatter(minFractionDigits, maxFractionDigits, roundingMode, width, padding, leftAligned,
+                groupingSeparator, decimalSeparator);
+    }
+
+    /**
+     * Copy of this formatter with the decimal separator, '.' by default.
+     */
+    public DecimalFormatter withDecimalSeparator(char decimalSeparator) {
+        return new DecimalFormatter(minFractionDigits, maxFractionDigits, roundingMode, width, padding, leftAligned,
+                groupingSeparator, decimalSeparator);
+    }
+
+    /**
+     * Number of characters the value is formatted to
+     */
+    public int length(AbstractDecimal<?> value) {
+        return write(value.getRaw(), value.getScale(), null, 0);
+    }
+
+    /**
+     * Writes the value as ASCII bytes from the offset
+     * @return number of bytes written
+     */
+    public int format(AbstractDecimal<?> value, byte[] dst, int offset) {
+        return write(value.getRaw(), value.getScale(), dst, offset);
+    }
+
+    /**
+     * Writes the value to the char array from the offset
+     * @return number of chars written
+     */
+    public int format(AbstractDecimal<?> value, char[] dst, int offset) {
+        return write(value.getRaw(), value.getScale(), dst, offset);
+    }
+
+    /**
+     * Writes the value as ASCII bytes from the current position of the buffer, the position is advanced
+     * @return number of bytes written
+     */
+    public int format(AbstractDecimal<?> value, ByteBuffer dst) {
+        int length = write(value.getRaw(), value.getScale(), dst, dst.position());
+        dst.position(dst.position() + length);
+        return length;
+    }
+
+    /**
+     * Appends the value to the StringBuilder, non-allocating if the builder has enough capacity
+     */
+    public StringBuilder format(AbstractDecimal<?> value, StringBuilder sb) {
+        int offset = sb.length();
+        sb.setLength(offset + length(value));
+        write(value.getRaw(), value.getScale(), sb, offset);
+        return sb;
+    }
+
+    /**
+     * Converts the value to a String. Allocating.
+     */
+    public String format(AbstractDecimal<?> value) {
+        return format(value, new StringBuilder(Math.max(width, 32))).toString();
+    }
+
+    /**
+     * Formats the value and writes it to dst (if not null), which can be byte[], char[], ByteBuffer or StringBuilder
+     * (with enough length)
+     * @return number of chars (written)
+     */
+    private int write(long raw, int scale, Object dst, int offset) {
+        if (raw == AbstractDecimal.NaN) {
+            return writeNaN(dst, offset);
+        }
+
+        int maxFraction = maxFractionDigits == SCALE ? scale : maxFractionDigits;
+        int minFraction = Math.min(minFractionDigits == SCALE ? scale : minFractionDigits,
+                maxFractionDigits == SCALE ? Integer.MAX_VALUE : maxFractionDigits);
+
+        int fraction = scale; // number of digits of raw after the decimal separator
+        if (fraction > maxFraction) {
+            long divisor = BaseDecimal.LONG_POW10[fraction - maxFraction];
+            raw = BaseDecimal.round(raw / divisor, raw % divisor, divisor, roundingMode);
+            if (raw == AbstractDecimal.NaN) {
+                return writeNaN(dst, offset);
+            }
+            fraction = maxFraction;
+        }
+        while (fraction > minFraction && raw % 10 == 0) {
+            raw /= 10;
+            fraction--;
+        }
+        int zeroes = Math.max(minFraction - fraction, 0); // trailing zeroes beyond the scale
+
+        boolean negative = raw < 0;
+        long abs = negative ? -raw : raw;
+        int integerDigits = Math.max(AbstractDecimal.stringSize(abs) - fraction, 1);
+        int length = (negative ? 1 : 0) + integerDigits +
+                (groupingSeparator != 0 ? (integerDigits - 1) / 3 : 0) +
+                (fraction + zeroes > 0 ? 1 + fraction + zeroes : 0);
+
+        if (length > width && width > 0) {
+            fill(dst, offset, offset + width, OVERFLOW);
+            return width;
+        }
+        int total = Math.max(length, width);
+        if (dst == null) {
+            return total;
+        }
+
+        // the digits (with the sign unless it's before zero padding) are written to the array at once
+        boolean signFirst = negative && !leftAligned && padding == '0';
+        int digitsLength = signFirst ? length - 1 : length;
+        int start = leftAligned ? offset : offset + total - digitsLength;
+        byte[] array;
+        int position;
+        boolean copy = false;
+        if (dst instanceof byte[]) {
+            array = (byte[]) dst;
+            position = start;
+        } else if (dst instanceof ByteBuffer && ((ByteBuffer) dst).hasArray()) {
+            array = ((ByteBuffer) dst).array();
+            position = ((ByteBuffer) dst).arrayOffset() + start;
+        } else {
+            array = DIGITS.get();
+            position = 0;
+            copy = true;
+        }
+        writeDigits(abs, negative && !signFirst, fraction, zeroes, array, position + digitsLength);
+        if (copy) {
+            copy(array, digitsLength, dst, start);
+        }
+
+        if (signFirst) {
+            fill(dst, offset, offset + 1, '-');
+            fill(dst, offset + 1, start, padding);
+        } else if (leftAligned) {
+            fill(dst, offset + length, offset + total, padding);
+        } else {
+            fill(dst, offset, start, padding);
+        }
+        return total;
+    }
+
+    /**
+     * Writes the digits from right to left, ending before end
+     */
+    private void writeDigits(long abs, boolean negative, int fraction, int zeroes, byte[] dst, int end) {
+        Arrays.fill(dst, end - zeroes, end, (byte) '0');
+        end -= zeroes;
+        if (fraction + zeroes > 0) {
+            for (int i = 0; i < fraction; i++) {
+                dst[--end] = (byte) ('0' + abs % 10);
+                abs /= 10;
+            }
+            dst[--end] = (byte) decimalSeparator;
+        }
+        int digits = 0;
+        do {
+            if (digits > 0 && digits % 3 == 0 && groupingSeparator != 0) {
+                dst[--end] = (byte) groupingSeparator;
+            }
+            dst[--end] = (byte) ('0' + abs % 10);
+            abs /= 10;
+            digits++;
+        } while (abs != 0);
+        if (negative) {
+            dst[--end] = '-';
+        }
+    }
+
+    private int writeNaN(Object dst, int offset) {
+        int length = NAN.length;
+        if (width > 0 && width < length) {
+            fill(dst, offset, offset + width, OVERFLOW);
+            return width;
+        }
+        int total = Math.max(length, width);
+        if (dst != null) {
+            int start = leftAligned ? offset : offset + total - length;
+            copy(NAN, length, dst, start);
+            fill(dst, offset, start, padding);
+            fill(dst, start + length, offset + total, padding);
+        }
+        return total;
+    }
+
+    /**
+     * Copies ASCII bytes from the start of src to dst (byte[], char[], ByteBuffer or StringBuilder)
+     */
+    private static void copy(byte[] src, int length, Object dst, int offset) {
+        if (dst instanceof byte[]) {
+            System.arraycopy(src, 0, dst, offset, length);
+        } else if (dst instanceof char[]) {
+            char[] chars = (char[]) dst;
+            for (int i = 0; i < length; i++) {
+                chars[offset + i] = (char) src[i];
+            }
+        } else if (dst instanceof ByteBuffer) {
+            ByteBuffer buffer = (ByteBuffer) dst;
+            for (int i = 0; i < length; i++) {
+                buffer.put(offset + i, src[i]);
+            }
+        } else {
+            StringBuilder sb = (StringBuilder) dst;
+            for (int i = 0; i < length; i++) {
+                sb.setCharAt(offset + i, (char) src[i]);
+            }
+        }
+    }
+
+    private static void fill(Object dst, int from, int to, char ch) {
+        if (dst == null || from >= to) {
+            return;
+        }
+        if (dst instanceof byte[]) {
+            Arrays.fill((byte[]) dst, from, to, (byte) ch);
+        } else if (dst instanceof char[]) {
+            Arrays.fill((char[]) dst, from, to, ch);
+        } else if (dst instanceof ByteBuffer) {
+            ByteBuffer buffer = (ByteBuffer) dst;
+            for (int i = from; i < to; i++) {
+                buffer.put(i, (byte) ch);
+            }
+        } else {
+            StringBuilder sb = (StringBuilder) dst;
+            for (int i = from; i < to; i++) {
+                sb.setCharAt(i, ch);
+            }
+        }
+    }
+
+    private static void checkAscii(char ch) {
+        if (ch > 127) {
+            throw new IllegalArgumentException("Only ASCII characters are supported: " + ch);
+        }
+    }
+}
@@ -0,0 +1,538 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import java.math.RoundingMode;
+import java.util.concurrent.Flow;
+
+/**
+ * {@link Flow.Processor} stage aggregating batches of ticks ({@link DecimalTicks}) and emitting the aggregate after
+ * each batch: running sum ({@link #sum}), VWAP ({@link #vwap}), OHLC ({@link #ohlc}) and EWMA ({@link #ewma}).
+ * <p>
+ * Each batch produces exactly one result, so the demand of the (single) subscriber is passed upstream as it is
+ * and backpressure is preserved. Batches are processed over the raw columns without allocation.
+ * <p>
+ * The emitted result is the same instance every time and is overwritten by the next batch: it's only valid during
+ * {@link Flow.Subscriber#onNext}, a subscriber must copy it (e.g. {@link AbstractDecimal#clone}) to keep the value.
+ *
+ * @param <R> result
+ */
+public abstract class DecimalProcessor<R> implements Flow.Processor<DecimalTicks, R> {
+    private Flow.Subscription upstream;
+    private volatile Flow.Subscriber<? super R> downstream;
+    private long pendingDemand; // requested before subscribed to upstream
+    private boolean cancelled;
+    private Throwable error;
+    private boolean completed;
+    private volatile boolean failed; // by a batch, upstream is cancelled
+
+    /**
+     * Adds the ticks to the aggregate
+     */
+    protected abstract void process(DecimalTicks ticks);
+
+    /**
+     * @return the aggregate after the last batch
+     */
+    public abstract R result();
+
+    /**
+     * Running sum of the quantities: exact (with the greatest scale of the ticks and the result, NaN if it overflows),
+     * only the emitted value is rounded to the scale of result
+     *
+     * @param result instance updated and emitted after each batch
+     */
+    public static <T extends AbstractDecimal<T>> DecimalProcessor<T> sum(T result, RoundingMode roundingMode) {
+        return new Sum<>(result, roundingMode);
+    }
+
+    /**
+     * Volume-weighted average price: sum(price * quantity) / sum(quantity) of all ticks, only the result is rounded
+     * to the scale of result. The notional is exact (128-bit) with the price scale plus the quantity scale, the result
+     * is NaN if there's no volume, the volume overflows or the result doesn't fit its scale. The scales of the ticks
+     * must not change.
+     *
+     * @param result instance updated and emitted after each batch
+     */
+    public static <T extends AbstractDecimal<T>> DecimalProcessor<T> vwap(T result, RoundingMode roundingMode) {
+        return new Vwap<>(result, roundingMode);
+    }
+
+    /**
+     * Open, high, low and close prices ignoring NaN, either of each batch (the publisher batches ticks per bar) or
+     * running since the start
+     *
+     * @param prototype decimal of the scale of the result, the prices are rounded to
+     * @param perBatch true to start a new bar for each batch
+     */
+    public static <T extends AbstractDecimal<T>> DecimalProcessor<Bar<T>> ohlc(T prototype, RoundingMode roundingMode,
+                                                                             boolean perBatch) {
+        return new Ohlc<>(prototype, roundingMode, perBatch);
+    }
+
+    /**
+     * Exponentially weighted moving average of the prices ignoring NaN: ewma += alpha * (price - ewma), started from
+     * the first price
+     *
+     * @param result instance updated and emitted after each batch
+     * @param alpha weight of a new price, between 0 and 1 (copied)
+     */
+    public static <T extends AbstractDecimal<T>> DecimalProcessor<T> ewma(T result, AbstractDecimal<?> alpha,
+                                                                         RoundingMode roundingMode) {
+        return new Ewma<>(result, alpha, roundingMode);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super R> subscriber) {
+        Throwable error;
+        boolean completed;
+        synchronized (this) {
+            if (downstream != null) {
+                subscriber.onSubscribe(new Flow.Subscription() {
+                    @Override
+                    public void request(long n) {
+                    }
+
+                    @Override
+                    public void cancel() {
+                    }
+                });
+                subscriber.onError(new IllegalStateException("Only one subscriber is supported"));
+                return;
+            }
+            downstream = subscriber;
+            error = this.error;
+            completed = this.completed;
+        }
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    cancel();
+                    subscriber.onError(new IllegalArgumentException("Non-positive request: " + n));
+                    return;
+                }
+                Flow.Subscription upstream;
+                synchronized (DecimalProcessor.this) {
+                    upstream = DecimalProcessor.this.upstream;
+                    if (upstream == null) {
+                        pendingDemand = pendingDemand + n < 0 ? Long.MAX_VALUE : pendingDemand + n;
+                        return;
+                    }
+                }
+                upstream.request(n);
+            }
+
+            @Override
+            public void cancel() {
+                Flow.Subscription upstream;
+                synchronized (DecimalProcessor.this) {
+                    cancelled = true;
+                    upstream = DecimalProcessor.this.upstream;
+                }
+                if (upstream != null) {
+                    upstream.cancel();
+                }
+            }
+        });
+        if (error != null) {
+            subscriber.onError(error);
+        } else if (completed) {
+            subscriber.onComplete();
+        }
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        long demand;
+        boolean cancelled;
+        synchronized (this) {
+            if (upstream != null) {
+                subscription.cancel(); // already subscribed
+                return;
+            }
+            upstream = subscription;
+            demand = pendingDemand;
+            pendingDemand = 0;
+            cancelled = this.cancelled;
+        }
+        if (cancelled) {
+            subscription.cancel();
+        } else if (demand > 0) {
+            subscription.request(demand);
+        }
+    }
+
+    @Override
+    public void onNext(DecimalTicks ticks) {
+        if (failed) {
+            return; // cancelled, the ticks already sent are dropped
+        }
+        try {
+            process(ticks);
+        } catch (RuntimeException e) {
+            // onNext must not throw (e.g. on ticks of other scales), the stream is failed instead
+            Flow.Subscription upstream;
+            synchronized (this) {
+                failed = true;
+                cancelled = true;
+                upstream = this.upstream;
+            }
+            if (upstream != null) {
+                upstream.cancel();
+            }
+            signalError(e);
+            return;
+        }
+        Flow.Subscriber<? super R> downstream = this.downstream;
+        if (downstream != null) {
+            downstream.onNext(result());
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        if (!failed) {
+            signalError(throwable);
+        }
+    }
+
+    private void signalError(Throwable throwable) {
+        Flow.Subscriber<? super R> downstream;
+        synchronized (this) {
+            error = throwable;
+            downstream = this.downstream;
+        }
+        if (downstream != null) {
+            downstream.onError(throwable);
+        }
+    }
+
+    @Override
+    public void onComplete() {
+        if (failed) {
+            return;
+        }
+        Flow.Subscriber<? super R> downstream;
+        synchronized (this) {
+            completed = true;
+            downstream = this.downstream;
+        }
+        if (downstream != null) {
+            downstream.onComplete();
+        }
+    }
+
+    private static void checkScale(int expected, int scale) {
+        if (scale != expected) {
+            throw new IllegalArgumentException("Scales must be the same");
+        }
+    }
+
+    /**
+     * Open, high, low and close (NaN if there are no ticks), emitted by {@link #ohlc}
+     */
+    public static final class Bar<T extends AbstractDecimal<T>> {
+        private final T open;
+        private final T high;
+        private final T low;
+        private final T close;
+        private int count;
+
+        private Bar(T prototype) {
+            open = prototype.clone().setRaw(AbstractDecimal.NaN);
+            high = prototype.clone().setRaw(AbstractDecimal.NaN);
+            low = prototype.clone().setRaw(AbstractDecimal.NaN);
+            close = prototype.clone().setRaw(AbstractDecimal.NaN);
+        }
+
+        public T getOpen() {
+            return open;
+        }
+
+        public T getHigh() {
+            return high;
+        }
+
+        public T getLow() {
+            return low;
+        }
+
+        public T getClose() {
+            return close;
+        }
+
+        /**
+         * @return number of (non-NaN) prices in the bar
+         */
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + open + ", " + high + ", " + low + ", " + close + "] x " + count;
+        }
+
+        private void reset() {
+            open.setRaw(AbstractDecimal.NaN);
+            high.setRaw(AbstractDecimal.NaN);
+            low.setRaw(AbstractDecimal.NaN);
+            close.setRaw(AbstractDecimal.NaN);
+            count = 0;
+        }
+    }
+
+    private static final class Sum<T extends AbstractDecimal<T>> extends DecimalProcessor<T> {
+        private final T result;
+        private final RoundingMode roundingMode;
+        private long sum; // exact, with the scale below
+        private int scale;
+
+        Sum(T result, RoundingMode roundingMode) {
+            this.result = result.setRaw(0);
+            this.roundingMode = roundingMode;
+            this.scale = result.getScale();
+        }
+
+        @Override
+        protected void process(DecimalTicks ticks) {
+            long sum = this.sum;
+            if (ticks.getQuantityScale() > scale) {
+                int shift = ticks.getQuantityScale() - scale;
+                sum = sum == AbstractDecimal.NaN || Math.abs(sum) > BaseDecimal.SCALE_OVERFLOW_LIMITS[shift] ?
+                        AbstractDecimal.NaN : sum * BaseDecimal.LONG_POW10[shift];
+                scale = ticks.getQuantityScale();
+            }
+            int shift = scale - ticks.getQuantityScale();
+            long factor = BaseDecimal.LONG_POW10[shift];
+            long limit = BaseDecimal.SCALE_OVERFLOW_LIMITS[shift];
+
+            long[] quantities = ticks.quantities;
+            for (int i = 0, size = ticks.size; i < size && sum != AbstractDecimal.NaN; i++) {
+                long q = quantities[i];
+                if (q == AbstractDecimal.NaN || Math.abs(q) > limit) {
+                    sum = AbstractDecimal.NaN;
+                    break;
+                }
+                q *= factor;
+                long next = sum + q;
+                sum = ((sum ^ next) & (q ^ next)) < 0 ? AbstractDecimal.NaN : next;
+            }
+            this.sum = sum;
+            if (sum == AbstractDecimal.NaN) {
+                result.setRaw(AbstractDecimal.NaN);
+            } else {
+                result.fromLong(sum, scale, roundingMode);
+            }
+        }
+
+        @Override
+        public T result() {
+            return result;
+        }
+    }
+
+    private static final class Vwap<T extends AbstractDecimal<T>> extends DecimalProcessor<T> {
+        private final T result;
+        private final RoundingMode roundingMode;
+        private int priceScale = -1;
+        private int quantityScale;
+        // exact, with the price scale plus the quantity scale, 128-bit
+        private long notionalHi;
+        private long notionalLo;
+        private boolean overflow;
+        private long volume;
+
+        Vwap(T result, RoundingMode roundingMode) {
+            this.result = result.setRaw(AbstractDecimal.NaN);
+            this.roundingMode = roundingMode;
+        }
+
+        @Override
+        protected void process(DecimalTicks ticks) {
+            if (priceScale < 0) {
+                priceScale = ticks.getPriceScale();
+                quantityScale = ticks.getQuantityScale();
+            }
+            checkScale(priceScale, ticks.getPriceScale());
+            checkScale(quantityScale, ticks.getQuantityScale());
+
+            long[] prices = ticks.prices;
+            long[] quantities = ticks.quantities;
+            long hi = notionalHi;
+            long lo = notionalLo;
+            boolean overflow = this.overflow;
+            long volume = this.volume;
+            for (int i = 0, size = ticks.size; i < size; i++) {
+                long p = prices[i];
+                long q = quantities[i];
+                if (p == AbstractDecimal.NaN || q == AbstractDecimal.NaN) {
+                    overflow = true;
+                }
+                long productLo = p * q;
+                long productHi = Math.multiplyHigh(p, q);
+                long nextLo = lo + productLo;
+                long nextHi = hi + productHi + (Long.compareUnsigned(nextLo, lo) < 0 ? 1 : 0);
+                if (((hi ^ nextHi) & (productHi ^ nextHi)) < 0) {
+                    overflow = true; // beyond 128 bits
+                }
+                hi = nextHi;
+                lo = nextLo;
+                volume = plus(volume, q);
+            }
+            notionalHi = hi;
+            notionalLo = lo;
+            this.overflow = overflow;
+            this.volume = volume;
+
+            if (overflow || volume == AbstractDecimal.NaN || volume == 0) {
+                result.setRaw(AbstractDecimal.NaN);
+                return;
+            }
+            if (volume < 0) {
+                lo = -lo;
+                hi = lo == 0 ? -hi : ~hi;
+                volume = -volume;
+            }
+            // notional / volume has the price scale, rounded to the result once
+            result.setRaw(BaseDecimal.divRound_127(hi, lo, volume, priceScale - result.getScale(), roundingMode));
+        }
+
+        private static long plus(long sum, long value) {
+            long next = sum + value;
+            return sum == AbstractDecimal.NaN || value == AbstractDecimal.NaN || ((sum ^ next) & (value ^ next)) < 0 ?
+                    AbstractDecimal.NaN : next;
+        }
+
+        @Override
+        public T result() {
+            return result;
+        }
+    }
+
+    private static final class Ohlc<T extends AbstractDecimal<T>> extends DecimalProcessor<Bar<T>> {
+        private final Bar<T> bar;
+        private final RoundingMode roundingMode;
+        private final boolean perBatch;
+        private final int scale;
+        private RawDecimal price;
+
+        Ohlc(T prototype, RoundingMode roundingMode, boolean perBatch) {
+            this.bar = new Bar<>(prototype);
+            this.roundingMode = roundingMode;
+            this.perBatch = perBatch;
+            this.scale = prototype.getScale();
+        }
+
+        @Override
+        protected void process(DecimalTicks ticks) {
+            if (perBatch) {
+                bar.reset();
+            }
+            boolean rescale = ticks.getPriceScale() != scale;
+            if (rescale && (price == null || price.getScale() != ticks.getPriceScale())) {
+                price = new RawDecimal(ticks.getPriceScale());
+            }
+            RawDecimal rounded = RawDecimal.scratch(scale);
+
+            long[] prices = ticks.prices;
+            long high = bar.high.getRaw();
+            long low = bar.low.getRaw();
+            long close = bar.close.getRaw();
+            int count = bar.count;
+            for (int i = 0, size = ticks.size; i < size; i++) {
+                long raw = prices[i];
+                if (rescale) {
+                    raw = rounded.set(price.setRaw(raw), roundingMode).getRaw();
+                }
+                if (raw == AbstractDecimal.NaN) {
+                    continue;
+                }
+                if (count++ == 0) {
+                    bar.open.setRaw(raw);
+                    high = raw;
+                    low = raw;
+                } else {
+                    high = Math.max(high, raw);
+                    low = Math.min(low, raw);
+                }
+                close = raw;
+            }
+            bar.high.setRaw(high);
+            bar.low.setRaw(low);
+            bar.close.setRaw(close);
+            bar.count = count;
+        }
+
+        @Override
+        public Bar<T> result() {
+            return bar;
+        }
+    }
+
+    private static final class Ewma<T extends AbstractDecimal<T>> extends DecimalProcessor<T> {
+        private final T result;
+        private final RawDecimal alpha;
+        private final RoundingMode roundingMode;
+        private final RawDecimal delta;
+        private RawDecimal price;
+        private boolean started;
+
+        Ewma(T result, AbstractDecimal<?> alpha, RoundingMode roundingMode) {
+            if (alpha.isNaN() || alpha.getRaw() < 0 || alpha.getRaw() > BaseDecimal.POW10[alpha.getScale()]) {
+                throw new IllegalArgumentException("Alpha must be between 0 and 1: " + alpha);
+            }
+            this.result = result.setRaw(AbstractDecimal.NaN);
+            this.alpha = new RawDecimal(alpha.getScale()).setRaw(alpha.getRaw());
+            this.roundingMode = roundingMode;
+            this.delta = new RawDecimal(result.getScale());
+        }
+
+        @Override
+        protected void process(DecimalTicks ticks) {
+            if (price == null || price.getScale() != ticks.getPriceScale()) {
+                price = new RawDecimal(ticks.getPriceScale());
+            }
+            long[] prices = ticks.prices;
+            for (int i = 0, size = ticks.size; i < size; i++) {
+                if (price.setRaw(prices[i]).isNaN()) {
+                    continue;
+                }
+                if (!started) {
+                    result.set(price, roundingMode);
+                    started = true;
+                } else {
+                    delta.set(price, roundingMode).subtract(result, roundingMode).mul(alpha, roundingMode);
+                    result.add(delta, roundingMode);
+                }
+            }
+        }
+
+        @Override
+        public T result() {
+            return result;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import java.util.Arrays;
+
+/**
+ * Per-thread stack of reusable temporary decimals, for helpers which can't keep temporaries in fields
+ * (static or reentrant code). Temporaries taken after {@link #mark} are given back by {@link #release}:
+ * <pre>
+ * DecimalScratch scratch = DecimalScratch.current();
+ * int mark = scratch.mark();
+ * try {
+ *     Price tmp = scratch.take(price);
+ *     ...
+ * } finally {
+ *     scratch.release(mark);
+ * }
+ * </pre>
+ * Each stack position remembers the last instance handed out, so a helper taking the same classes in the same
+ * order allocates only on its first call. Temporaries must not be used after the release and must not be passed
+ * to other threads.
+ */
+public final class DecimalScratch {
+    private static final ThreadLocal<DecimalScratch> CURRENT = ThreadLocal.withInitial(DecimalScratch::new);
+
+    private AbstractDecimal<?>[] slots = new AbstractDecimal<?>[16];
+    private int depth;
+
+    private DecimalScratch() {
+    }
+
+    /**
+     * @return the scratch of the current thread
+     */
+    public static DecimalScratch current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @return mark to pass to {@link #release}
+     */
+    public int mark() {
+        return depth;
+    }
+
+    /**
+     * Gives back all temporaries taken after the mark
+     */
+    public void release(int mark) {
+        if (mark < 0 || mark > depth) {
+            throw new IllegalStateException("Invalid mark " + mark + ", depth " + depth);
+        }
+        depth = mark;
+    }
+
+    /**
+     * @param prototype heap decimal, flyweights (e.g. {@link BufferDecimal}) share their storage when cloned,
+     *                  use {@link #take(int)} for them
+     * @return a temporary of the class and scale of the prototype, with zero value
+     * @throws IllegalArgumentException if the prototype is a flyweight
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends AbstractDecimal<T>> T take(T prototype) {
+        if (prototype instanceof BufferDecimal || prototype instanceof PaddedDecimalArray.Cell) {
+            throw new IllegalArgumentException("Flyweight can't be a prototype: " + prototype.getClass().getName());
+        }
+        AbstractDecimal<?> slot = next();
+        if (slot == null || slot.getClass() != prototype.getClass() || slot.getScale() != prototype.getScale()) {
+            slot = prototype.clone();
+            slots[depth] = slot;
+        }
+        depth++;
+        return (T) slot.setRaw(0);
+    }
+
+    /**
+     * @return a temporary of the scale (0..9), with zero value, for operations taking decimals of any scale
+     */
+    public AbstractDecimal<?> take(int scale) {
+        AbstractDecimal<?> slot = next();
+        if (!(slot instanceof RawDecimal) || slot.getScale() != scale) {
+            slot = new RawDecimal(scale);
+            slots[depth] = slot;
+        }
+        depth++;
+        return slot.setRaw(0);
+    }
+
+    private AbstractDecimal<?> next() {
+        if (depth == slots.length) {
+            slots = Arrays.copyOf(slots, depth * 2);
+        }
+        return slots[depth];
+    }
+}
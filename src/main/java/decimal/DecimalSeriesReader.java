@@ -0,0 +1,191 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import static decimal.DecimalSeriesWriter.*;
+
+/**
+ * Random access decoder of raw decimal series written by {@link DecimalSeriesWriter}.
+ * The data can be a heap, direct or memory-mapped buffer from the position to the limit, it is not copied.
+ * <p>
+ * Non-allocating after construction. Not thread-safe, use one reader per thread over the same data.
+ */
+public final class DecimalSeriesReader {
+    private final ByteBuffer data;
+    private final int start;
+    private final int blockSize;
+    private final long size;
+    private final int blockCount;
+    private final int offsetsPosition;
+    private final long[] dictionary = new long[MAX_DICTIONARY_SIZE];
+    private final long[] cache; // last decoded block for get()
+    private int cachedBlock = -1;
+
+    public DecimalSeriesReader(ByteBuffer data) {
+        this.data = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        this.start = data.position();
+        int footer = data.limit() - FOOTER_SIZE;
+        if (footer < start || this.data.getInt(footer + 16) != MAGIC) {
+            throw new IllegalArgumentException("Not a decimal series");
+        }
+        this.blockSize = this.data.getInt(footer);
+        this.size = this.data.getLong(footer + 4);
+        this.blockCount = this.data.getInt(footer + 12);
+        this.offsetsPosition = footer - 8 * blockCount;
+        if (blockSize <= 0 || blockCount < 0 || offsetsPosition < start ||
+                size > (long) blockSize * blockCount || size <= (long) blockSize * (blockCount - 1)) {
+            throw new IllegalArgumentException("Corrupted decimal series footer");
+        }
+        this.cache = new long[blockSize];
+    }
+
+    /**
+     * @return number of values
+     */
+    public long size() {
+        return size;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    /**
+     * @return value by index, decodes the block of the value unless it is the last decoded one
+     */
+    public long get(long index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        int block = (int) (index / blockSize);
+        if (block != cachedBlock) {
+            readBlock(block, cache, 0);
+            cachedBlock = block;
+        }
+        return cache[(int) (index % blockSize)];
+    }
+
+    /**
+     * Decodes all values of the block to dst, there must be space for {@link #getBlockSize} values
+     *
+     * @return number of values in the block (less than the block size for the last block)
+     */
+    public int readBlock(int block, long[] dst, int dstPos) {
+        if (block < 0 || block >= blockCount) {
+            throw new IndexOutOfBoundsException("Block: " + block + ", blocks: " + blockCount);
+        }
+        ByteBuffer data = this.data;
+        data.position(start + (int) data.getLong(offsetsPosition + 8 * block));
+        byte type = data.get();
+        int count = (int) DecimalCodec.getVarLong(data);
+        if (count <= 0 || count > blockSize) {
+            throw new IllegalArgumentException("Corrupted block " + block);
+        }
+
+        switch (type) {
+            case RAW:
+                for (int i = 0, position = data.position(); i < count; i++) {
+                    dst[dstPos + i] = data.getLong(position + 8 * i);
+                }
+                break;
+            case DELTA:
+                long value = DecimalCodec.getVarLong(data);
+                long tick = DecimalCodec.getVarLong(data);
+                dst[dstPos] = value;
+                if (count > 1) {
+                    long delta = DecimalCodec.getVarLong(data);
+                    int flags = data.get() & 0xFF;
+                    int width = flags & ~DELTA_OF_DELTA;
+                    long previous = (flags & DELTA_OF_DELTA) != 0 ? -1 : 0; // mask of the previous delta
+                    value += delta * tick;
+                    dst[dstPos + 1] = value;
+                    unpack(data, data.position(), dst, dstPos + 2, count - 2, width);
+                    for (int i = 2; i < count; i++) {
+                        long zigzag = dst[dstPos + i];
+                        delta = (delta & previous) + (zigzag >>> 1 ^ -(zigzag & 1));
+                        value += delta * tick;
+                        dst[dstPos + i] = value;
+                    }
+                }
+                break;
+            case DICTIONARY:
+                int dictionarySize = (int) DecimalCodec.getVarLong(data);
+                if (dictionarySize <= 0 || dictionarySize > MAX_DICTIONARY_SIZE) {
+                    throw new IllegalArgumentException("Corrupted block " + block);
+                }
+                for (int i = 0; i < dictionarySize; i++) {
+                    dictionary[i] = DecimalCodec.getVarLong(data);
+                }
+                int width = 64 - Long.numberOfLeadingZeros(dictionarySize - 1);
+                unpack(data, data.position(), dst, dstPos, count, width);
+                for (int i = 0; i < count; i++) {
+                    long index = dst[dstPos + i];
+                    if (index >= dictionarySize) {
+                        throw new IllegalArgumentException("Corrupted block " + block);
+                    }
+                    dst[dstPos + i] = dictionary[(int) index];
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown type " + type + " of block " + block);
+        }
+        return count;
+    }
+
+    /**
+     * Unpacks values of width bits written by {@link DecimalSeriesWriter} reading whole words
+     * (covered by {@link DecimalSeriesWriter#PADDING})
+     */
+    private static void unpack(ByteBuffer data, int position, long[] dst, int dstPos, int length, int width) {
+        if (width == 0) {
+            Arrays.fill(dst, dstPos, dstPos + length, 0);
+            return;
+        }
+        long mask = width == 64 ? -1 : (1L << width) - 1;
+        long word = 0;
+        int bits = 0; // available in word, always less than 64
+        for (int i = 0; i < length; i++) {
+            if (bits >= width) {
+                dst[dstPos + i] = word & mask;
+                word >>>= width;
+                bits -= width;
+            } else {
+                long next = data.getLong(position);
+                position += 8;
+                dst[dstPos + i] = (word | next << bits) & mask;
+                int used = width - bits;
+                word = used == 64 ? 0 : next >>> used;
+                bits = 64 - used;
+            }
+        }
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Streaming encoder of raw decimal series (e.g. tick prices) readable with {@link DecimalSeriesReader}.
+ * <p>
+ * Values are split into blocks of {@link #getBlockSize} values, each block is encoded with the smallest of:
+ * <ul>
+ *     <li>RAW: 8 bytes per value</li>
+ *     <li>DELTA: the first value, the tick (GCD of deltas), the first delta in ticks and bit-packed
+ *     zigzag deltas or deltas-of-deltas (whichever is narrower) in ticks, i.e. a random walk on a grid or
+ *     a steady trend takes a few bits per value</li>
+ *     <li>DICTIONARY: up to {@value #MAX_DICTIONARY_SIZE} distinct values followed by bit-packed indexes,
+ *     for series repeating a few levels</li>
+ * </ul>
+ * Block offsets are written to the footer on {@link #close}, so blocks can be decoded independently.
+ * <p>
+ * Format (little-endian): blocks, block offsets (long each), block size (int), number of values (long),
+ * number of blocks (int), magic (int). Block: type (byte), number of values (var long, see {@link DecimalCodec}), data.
+ * <p>
+ * Not thread-safe.
+ */
+public final class DecimalSeriesWriter implements Closeable {
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+    static final int MAGIC = 0x53524544; // "DERS" (little-endian "DSER")
+    static final int FOOTER_SIZE = 4 + 8 + 4 + 4;
+    static final int MAX_DICTIONARY_SIZE = 256;
+    static final byte RAW = 0;
+    static final byte DELTA = 1;
+    static final byte DICTIONARY = 2;
+    static final int DELTA_OF_DELTA = 0x80; // flag in the width byte of DELTA blocks
+    static final int PADDING = 8; // after bit-packed data, allows to read the last value as a long
+
+    private static final int HASH_SIZE = MAX_DICTIONARY_SIZE * 4; // power of 2
+
+    private final OutputStream out;
+    private final int blockSize;
+    private final long[] block;
+    private final long[] deltas; // in ticks
+    private final byte[] encoded;
+    private final long[] dictionary = new long[MAX_DICTIONARY_SIZE];
+    private final long[] hashValues = new long[HASH_SIZE];
+    private final short[] hashSlots = new short[HASH_SIZE]; // index in dictionary + 1, 0 if empty
+    private int count; // in the current block
+    private long[] blockOffsets = new long[16];
+    private int blockCount;
+    private long size;
+    private long bytesWritten;
+    private boolean closed;
+
+    public DecimalSeriesWriter(OutputStream out) {
+        this(out, DEFAULT_BLOCK_SIZE);
+    }
+
+    public DecimalSeriesWriter(OutputStream out, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Incorrect block size: " + blockSize);
+        }
+        this.out = out;
+        this.blockSize = blockSize;
+        this.block = new long[blockSize];
+        this.deltas = new long[blockSize];
+        this.encoded = new byte[1 + 10 + 8 * blockSize + PADDING];
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * @return number of values added
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return number of bytes written to the stream so far (the current block and the footer are written later)
+     */
+    public long bytesWritten() {
+        return bytesWritten;
+    }
+
+    public DecimalSeriesWriter add(long raw) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Closed");
+        }
+        block[count++] = raw;
+        size++;
+        if (count == blockSize) {
+            writeBlock();
+        }
+        return this;
+    }
+
+    public DecimalSeriesWriter add(long[] src, int srcPos, int length) throws IOException {
+        for (int i = 0; i < length; i++) {
+            add(src[srcPos + i]);
+        }
+        return this;
+    }
+
+    /**
+     * Writes the last block and the footer, closes the stream
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        if (count > 0) {
+            writeBlock();
+        }
+        closed = true;
+
+        ByteBuffer footer = ByteBuffer.allocate(blockCount * 8 + FOOTER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < blockCount; i++) {
+            footer.putLong(blockOffsets[i]);
+        }
+        footer.putInt(blockSize).putLong(size).putInt(blockCount).putInt(MAGIC);
+        out.write(footer.array());
+        bytesWritten += footer.capacity();
+        out.close();
+    }
+
+    private void writeBlock() throws IOException {
+        int length = encodeBlock();
+        if (blockCount == blockOffsets.length) {
+            blockOffsets = Arrays.copyOf(blockOffsets, blockCount * 2);
+        }
+        blockOffsets[blockCount++] = bytesWritten;
+        out.write(encoded, 0, length);
+        bytesWritten += length;
+        count = 0;
+    }
+
+    /**
+     * @return length of the encoded block
+     */
+    private int encodeBlock() {
+        int rawSize = 8 * count;
+        int deltaFlags = deltaWidth(); // -1 if not applicable
+        int deltaWidth = deltaFlags & ~DELTA_OF_DELTA;
+        long tick = deltaFlags >= 0 ? deltas[0] : 0;
+        int deltaSize = deltaFlags >= 0 ? DecimalCodec.varLongSize(block[0]) + DecimalCodec.varLongSize(tick) +
+                (count > 1 ? DecimalCodec.varLongSize(deltas[1]) : 0) + 1 + packedSize(count - 2, deltaWidth) :
+                Integer.MAX_VALUE;
+        int dictionarySize = dictionarySize(); // -1 if not applicable
+        int indexWidth = dictionarySize > 0 ? 64 - Long.numberOfLeadingZeros(dictionarySize - 1) : 0;
+        int dictionaryBytes = dictionarySize > 0 ?
+                DecimalCodec.varLongSize(dictionarySize) + DecimalCodec.varLongsSize(dictionary, 0, dictionarySize) +
+                        packedSize(count, indexWidth) : Integer.MAX_VALUE;
+
+        int offset = 1;
+        offset = DecimalCodec.putVarLong(count, encoded, offset);
+        if (rawSize <= deltaSize && rawSize <= dictionaryBytes) {
+            encoded[0] = RAW;
+            ByteBuffer.wrap(encoded, offset, rawSize).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().put(block, 0, count);
+            return offset + rawSize;
+        } else if (deltaSize <= dictionaryBytes) {
+            encoded[0] = DELTA;
+            offset = DecimalCodec.putVarLong(block[0], encoded, offset);
+            offset = DecimalCodec.putVarLong(tick, encoded, offset);
+            if (count > 1) {
+                offset = DecimalCodec.putVarLong(deltas[1], encoded, offset);
+            }
+            encoded[offset++] = (byte) deltaFlags;
+            for (int i = 2; i < count; i++) {
+                long delta = (deltaFlags & DELTA_OF_DELTA) != 0 ? deltas[i] - deltas[i - 1] : deltas[i]; // no overflow
+                deltas[i - 1] = delta << 1 ^ delta >> 63;
+            }
+            return pack(deltas, 1, count - 2, deltaWidth, offset);
+        } else {
+            encoded[0] = DICTIONARY;
+            offset = DecimalCodec.putVarLong(dictionarySize, encoded, offset);
+            offset = DecimalCodec.putVarLongs(dictionary, 0, dictionarySize, encoded, offset);
+            for (int i = 0; i < count; i++) {
+                deltas[i] = hashSlots[find(block[i])] - 1;
+            }
+            return pack(deltas, 0, count, indexWidth, offset);
+        }
+    }
+
+    /**
+     * Computes the tick (to deltas[0]) and deltas in ticks (to deltas[1..count-1])
+     *
+     * @return bit width of zigzag deltas (from the 2nd) or deltas-of-deltas with {@link #DELTA_OF_DELTA} flag,
+     * whichever is narrower, -1 if any of deltas overflows long
+     */
+    private int deltaWidth() {
+        long tick = 0;
+        for (int i = 1; i < count; i++) {
+            long delta = block[i] - block[i - 1];
+            if (((block[i] ^ block[i - 1]) & (block[i] ^ delta)) < 0 || delta == Long.MIN_VALUE) {
+                return -1;
+            }
+            deltas[i] = delta;
+            tick = gcd(tick, Math.abs(delta));
+        }
+        if (tick == 0) {
+            tick = 1;
+        }
+        deltas[0] = tick;
+
+        long deltaBits = 0;
+        long ddBits = 0;
+        boolean ddOverflow = false;
+        for (int i = 1; i < count; i++) {
+            deltas[i] /= tick;
+            if (i > 1) {
+                deltaBits |= deltas[i] << 1 ^ deltas[i] >> 63;
+                long dd = deltas[i] - deltas[i - 1];
+                ddOverflow |= ((deltas[i] ^ deltas[i - 1]) & (deltas[i] ^ dd)) < 0;
+                ddBits |= dd << 1 ^ dd >> 63;
+            }
+        }
+        return ddOverflow || Long.numberOfLeadingZeros(deltaBits) >= Long.numberOfLeadingZeros(ddBits) ?
+                64 - Long.numberOfLeadingZeros(deltaBits) : 64 - Long.numberOfLeadingZeros(ddBits) | DELTA_OF_DELTA;
+    }
+
+    /**
+     * Collects distinct values of the block to the dictionary
+     *
+     * @return number of distinct values, -1 if more than {@link #MAX_DICTIONARY_SIZE}
+     */
+    private int dictionarySize() {
+        Arrays.fill(hashSlots, (short) 0);
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            int slot = find(block[i]);
+            if (hashSlots[slot] == 0) {
+                if (size == MAX_DICTIONARY_SIZE) {
+                    return -1;
+                }
+                hashValues[slot] = block[i];
+                dictionary[size++] = block[i];
+                hashSlots[slot] = (short) size;
+            }
+        }
+        return size;
+    }
+
+    private int find(long value) {
+        int slot = (int) (value * 0x9E3779B97F4A7C15L >>> 40) & (HASH_SIZE - 1);
+        while (hashSlots[slot] != 0 && hashValues[slot] != value) {
+            slot = (slot + 1) & (HASH_SIZE - 1);
+        }
+        return slot;
+    }
+
+    /**
+     * Packs the lowest width bits of values (little-endian bit order) to encoded
+     *
+     * @return offset after the packed data and padding
+     */
+    private int pack(long[] values, int pos, int length, int width, int offset) {
+        if (width == 0 || length <= 0) {
+            return offset;
+        }
+        long word = 0;
+        int bits = 0;
+        for (int i = 0; i < length; i++) {
+            long value = values[pos + i];
+            word |= value << bits;
+            bits += width;
+            if (bits >= 64) {
+                offset = putLong(word, offset, 8);
+                bits -= 64;
+                word = bits == 0 ? 0 : value >>> (width - bits);
+            }
+        }
+        offset = putLong(word, offset, (bits + 7) >>> 3);
+        Arrays.fill(encoded, offset, offset + PADDING, (byte) 0);
+        return offset + PADDING;
+    }
+
+    private int putLong(long word, int offset, int bytes) {
+        for (int i = 0; i < bytes; i++) {
+            encoded[offset++] = (byte) word;
+            word >>>= 8;
+        }
+        return offset;
+    }
+
+    static int packedSize(int length, int width) {
+        return width == 0 || length <= 0 ? 0 : (int) (((long) length * width + 7) >>> 3) + PADDING;
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
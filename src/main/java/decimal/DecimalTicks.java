@@ -0,0 +1,113 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import java.math.RoundingMode;
+
+/**
+ * Reusable batch of ticks (raw prices and quantities of declared scales) for streaming aggregation, see
+ * {@link DecimalProcessor}. A publisher fills a batch, passes it downstream and clears it for the next one,
+ * a single event is a batch of one tick.
+ */
+public final class DecimalTicks {
+    private final int priceScale;
+    private final int quantityScale;
+    final long[] prices;
+    final long[] quantities;
+    int size;
+
+    public DecimalTicks(int priceScale, int quantityScale, int capacity) {
+        DecimalColumns.checkScale(priceScale);
+        DecimalColumns.checkScale(quantityScale);
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        this.priceScale = priceScale;
+        this.quantityScale = quantityScale;
+        this.prices = new long[capacity];
+        this.quantities = new long[capacity];
+    }
+
+    public int getPriceScale() {
+        return priceScale;
+    }
+
+    public int getQuantityScale() {
+        return quantityScale;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return prices.length;
+    }
+
+    public DecimalTicks clear() {
+        size = 0;
+        return this;
+    }
+
+    /**
+     * Appends a tick with raw values of the declared scales
+     *
+     * @throws IllegalStateException if full
+     */
+    public DecimalTicks add(long priceRaw, long quantityRaw) {
+        if (size == prices.length) {
+            throw new IllegalStateException("Full, capacity " + prices.length);
+        }
+        prices[size] = priceRaw;
+        quantities[size] = quantityRaw;
+        size++;
+        return this;
+    }
+
+    /**
+     * Appends a tick rounding the values to the declared scales
+     *
+     * @throws IllegalStateException if full
+     */
+    public DecimalTicks add(AbstractDecimal<?> price, AbstractDecimal<?> quantity, RoundingMode roundingMode) {
+        return add(RawDecimal.scratch(priceScale).set(price, roundingMode).getRaw(),
+                RawDecimal.scratch(quantityScale).set(quantity, roundingMode).getRaw());
+    }
+
+    public long getPriceRaw(int index) {
+        checkIndex(index);
+        return prices[index];
+    }
+
+    public long getQuantityRaw(int index) {
+        checkIndex(index);
+        return quantities[index];
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of " + size);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import java.math.RoundingMode;
+
+/**
+ * Exact conversions between double and raw decimal values, see {@link BaseDecimal} for the naming conventions.
+ * <p>
+ * A double is m * 2^e, where m is 53-bit mantissa, therefore the exact value of d * 10^scale is
+ * m * 5^scale * 2^(e + scale), where m * 5^scale fits 53 + 21 = 74 bits. It is calculated as 128-bit number
+ * in 2 longs (hi and lo), then shifted left (exact value) or right (whole part and 128-bit binary fraction).
+ * <p>
+ * Decimal to double conversion is a single floating-point division if the raw value is an exact double,
+ * otherwise the approximate result is corrected by comparing the exact value with the midpoints between the
+ * neighbour doubles.
+ * <p>
+ * All the methods are static and non-allocating.
+ */
+final class DoubleConversion {
+    private static final int SIGNIFICAND_BITS = 52;
+    private static final long SIGNIFICAND_MASK = (1L << SIGNIFICAND_BITS) - 1;
+    private static final long HIDDEN_BIT = 1L << SIGNIFICAND_BITS;
+    private static final int EXPONENT_MASK = 0x7FF;
+    private static final int EXPONENT_BIAS = 1075; // 1023 + 52, so value = m * 2^(exponent - bias)
+    private static final long FRACTION_DENOMINATOR = 1L << 62; // fraction passed to BaseDecimal.round
+    private static final long EXACT_LIMIT = 1L << 53; // all longs up to this are exact doubles
+
+    private DoubleConversion() {
+    }
+
+    /**
+     * Converts double to a raw decimal value with the given scale.
+     * If there are decimals of this scale converting back to exactly this double (i.e. the double is the closest
+     * double to them), the closest of them is returned, so 1.15 is 1.15 irrespective of rounding mode,
+     * even though the double is 1.149999999999999911182158029987...
+     * Otherwise, the exact binary value is rounded. This is the same as rounding the shortest decimal representation
+     * ({@link Double#toString}), apart from ties of HALF_* rounding modes, which are resolved by the exact value.
+     *
+     * @return {@link AbstractDecimal#NaN} if infinite, NaN, overflow or rounding is UNNECESSARY but required
+     */
+    static long toRaw(double value, int scale, RoundingMode roundingMode) {
+        long bits = Double.doubleToRawLongBits(value);
+        long sign = bits >> 63;
+        int exponent = (int) (bits >>> SIGNIFICAND_BITS) & EXPONENT_MASK;
+        long m_53 = bits & SIGNIFICAND_MASK;
+        if (exponent == EXPONENT_MASK) {
+            return AbstractDecimal.NaN; // infinity or NaN
+        }
+        if (exponent == 0) {
+            if (m_53 == 0) {
+                return 0;
+            }
+            exponent = 1; // subnormal
+        } else {
+            m_53 |= HIDDEN_BIT;
+        }
+
+        // p = m * 5^scale
+        long f_21 = BaseDecimal.POW10[scale] >>> scale;
+        long lo_64 = (m_53 & BaseDecimal.WORD_LO_MASK) * f_21;
+        long mid_42 = (m_53 >>> BaseDecimal.WORD_BITS) * f_21;
+        long p_64 = lo_64 + (mid_42 << BaseDecimal.WORD_BITS);
+        long p_10 = (mid_42 >>> BaseDecimal.WORD_BITS) + (Long.compareUnsigned(p_64, lo_64) < 0 ? 1 : 0);
+
+        int shift = exponent - EXPONENT_BIAS + scale; // value * 10^scale = p * 2^shift
+        if (shift >= 0) {
+            if (p_10 != 0 || shift >= 63 || (p_64 >>> (63 - shift)) != 0) {
+                return AbstractDecimal.NaN; // overflow
+            }
+            return BaseDecimal.negIf(p_64 << shift, sign); // exact
+        }
+
+        // whole part and fraction = (f_64hi, f_64lo) / 2^128
+        int r = -shift;
+        long whole_63;
+        long f_64hi;
+        long f_64lo;
+        if (r < 64) {
+            whole_63 = (p_64 >>> r) | (p_10 << (64 - r));
+            if ((p_10 >>> r) != 0 || whole_63 < 0) {
+                return AbstractDecimal.NaN; // overflow
+            }
+            f_64hi = p_64 << (64 - r);
+            f_64lo = 0;
+        } else if (r == 64) {
+            whole_63 = p_10;
+            f_64hi = p_64;
+            f_64lo = 0;
+        } else if (r < 128) {
+            whole_63 = p_10 >>> (r - 64);
+            f_64hi = (p_10 << (128 - r)) | (p_64 >>> (r - 64));
+            f_64lo = p_64 << (128 - r);
+        } else {
+            // p < 2^74, so the fraction is less than 2^-54, only "sticky" bit is important
+            whole_63 = 0;
+            f_64hi = 0;
+            f_64lo = 1;
+        }
+
+        if (f_64hi == 0 && f_64lo == 0) {
+            return BaseDecimal.negIf(whole_63, sign); // exact
+        }
+
+        if (r < 128) {
+            // the closest decimal, HALF_EVEN
+            boolean half = f_64hi == Long.MIN_VALUE && f_64lo == 0;
+            boolean up = f_64hi < 0 && !half || half && (whole_63 & 1) != 0;
+
+            // distance from the value to the decimal (as a fraction of 10^-scale)
+            long d_64hi = up ? ~f_64hi + (f_64lo == 0 ? 1 : 0) : f_64hi;
+            long d_64lo = up ? -f_64lo : f_64lo;
+
+            // the decimal converts back to the double if distance < ulp / 2 (or ulp / 4 if the lower neighbour double
+            // is closer, i.e. m is a power of 2), ulp = 2^(exponent - bias) = 5^scale * 2^-r in units of 10^-scale,
+            // and fraction is in units of 2^-128, therefore compare with 5^scale * 2^(127 - r) (or 2^(126 - r))
+            boolean lowerCloser = m_53 == HIDDEN_BIT && exponent > 1 && !up;
+            int comparison = compareScaled(d_64hi, d_64lo, f_21, (lowerCloser ? 126 : 127) - r);
+            if (comparison < 0 || comparison == 0 && (m_53 & 1) == 0) { // ties go to even mantissa
+                long result = up ? whole_63 + 1 : whole_63;
+                return result >= 0 ? BaseDecimal.negIf(result, sign) : AbstractDecimal.NaN;
+            }
+        }
+
+        // numerator / 2^62, keeping lower bits as "sticky" bit (enough to distinguish half and non-zero)
+        long numerator = (f_64hi >>> 2) | ((f_64hi & 0x3) != 0 || f_64lo != 0 ? 1 : 0);
+        return BaseDecimal.round(BaseDecimal.negIf(whole_63, sign), BaseDecimal.negIf(numerator, sign),
+                FRACTION_DENOMINATOR, roundingMode);
+    }
+
+    /**
+     * Converts raw decimal value with the given scale to the closest double (ties to even), NaN to {@link Double#NaN}
+     */
+    static double toDouble(long raw, int scale) {
+        if (raw >= -EXACT_LIMIT && raw <= EXACT_LIMIT) {
+            // both raw and 10^scale are exact, so the division is correctly rounded
+            return (double) raw / BaseDecimal.POW10[scale];
+        }
+        if (raw == AbstractDecimal.NaN) {
+            return Double.NaN;
+        }
+        if (scale == 0) {
+            return (double) raw; // correctly rounded
+        }
+
+        long r_63 = Math.abs(raw);
+        double result = (double) r_63 / BaseDecimal.POW10[scale]; // less than 1 ulp error
+        for (;;) {
+            // result >= 2^53 / 10^9 is always normal
+            long bits = Double.doubleToRawLongBits(result);
+            long m_53 = bits & SIGNIFICAND_MASK | HIDDEN_BIT;
+            int exponent = (int) (bits >>> SIGNIFICAND_BITS) - EXPONENT_BIAS;
+
+            // compare with the midpoint to the next double: (2m + 1) * 2^(exponent - 1)
+            int comparison = compareWithBinary(r_63, scale, 2 * m_53 + 1, exponent - 1);
+            if (comparison > 0 || comparison == 0 && (m_53 & 1) != 0) {
+                result = Math.nextUp(result);
+                continue;
+            }
+
+            // compare with the midpoint to the previous double, which is closer if m is a power of 2
+            comparison = m_53 == HIDDEN_BIT ?
+                    compareWithBinary(r_63, scale, 4 * m_53 - 1, exponent - 2) :
+                    compareWithBinary(r_63, scale, 2 * m_53 - 1, exponent - 1);
+            if (comparison < 0 || comparison == 0 && (m_53 & 1) != 0) {
+                result = Math.nextDown(result);
+                continue;
+            }
+
+            return raw < 0 ? -result : result;
+        }
+    }
+
+    /**
+     * Compares r / 10^scale with n * 2^exponent
+     */
+    private static int compareWithBinary(long r_63, int scale, long n_55, int exponent) {
+        // q = n * 5^scale, r / 10^scale vs n * 2^exponent  <=>  r vs q * 2^(exponent + scale)
+        long f_21 = BaseDecimal.POW10[scale] >>> scale;
+        long lo_64 = (n_55 & BaseDecimal.WORD_LO_MASK) * f_21;
+        long mid_44 = (n_55 >>> BaseDecimal.WORD_BITS) * f_21;
+        long q_64 = lo_64 + (mid_44 << BaseDecimal.WORD_BITS);
+        long q_12 = (mid_44 >>> BaseDecimal.WORD_BITS) + (Long.compareUnsigned(q_64, lo_64) < 0 ? 1 : 0);
+
+        return -compareScaled(q_12, q_64, r_63, -(exponent + scale));
+    }
+
+    /**
+     * Compares unsigned 128-bit number with v * 2^shift (shift can be negative, i.e. hi:lo * 2^-shift vs v)
+     */
+    private static int compareScaled(long hi_64, long lo_64, long v_63, int shift) {
+        if (shift < 0) {
+            // hi_64:lo_64 * 2^-shift vs v
+            shift = -shift;
+            if (hi_64 != 0 || shift >= 64 || (lo_64 >>> (64 - shift)) != 0) {
+                return 1;
+            }
+            return Long.compareUnsigned(lo_64 << shift, v_63);
+        }
+        if (64 - Long.numberOfLeadingZeros(v_63) + shift > 128) {
+            return -1; // v * 2^shift >= 2^128
+        }
+
+        long vHi_64;
+        long vLo_64;
+        if (shift == 0) {
+            vHi_64 = 0;
+            vLo_64 = v_63;
+        } else if (shift < 64) {
+            vHi_64 = v_63 >>> (64 - shift);
+            vLo_64 = v_63 << shift;
+        } else {
+            vHi_64 = v_63 << (shift - 64);
+            vLo_64 = 0;
+        }
+        int comparison = Long.compareUnsigned(hi_64, vHi_64);
+        return comparison != 0 ? comparison : Long.compareUnsigned(lo_64, vLo_64);
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Single-pass scanner of FIX "tag=value&lt;SOH&gt;" messages extracting a configured set of decimal fields,
+ * e.g. Price(44), OrderQty(38) and LastPx(31), directly into caller-provided {@link AbstractDecimal} instances.
+ * <p>
+ * The message is scanned once, scanning stops as soon as all configured tags are found. Only the first occurrence
+ * of a tag is parsed (e.g. repeating groups are ignored). Values are parsed with {@link AbstractDecimal#tryParse},
+ * malformed values are set to {@link AbstractDecimal#NaN} and reported as not found.
+ * <p>
+ * Non-allocating. Not thread-safe (one scanner per thread), the configuration is immutable.
+ */
+public final class FixDecimalScanner {
+    public static final byte SOH = 1;
+    private static final int MAX_TAGS = 64; // bits of the result mask
+    private static final int DIRECT_TAGS = 1024; // tags below it are looked up in the table
+    private static final int MAX_TAG = 100000000; // longer tags are considered malformed
+
+    private final int[] tags;
+    private final byte[] slots; // slot by tag (for tags < DIRECT_TAGS), -1 if not configured
+    private final long allTags;
+    private final RoundingMode roundingMode;
+    private final AsciiSequence sequence = new AsciiSequence();
+
+    /**
+     * @param tags tags to extract, up to 64
+     * @param roundingMode used if values have more fraction digits than the scale of the target
+     */
+    public FixDecimalScanner(int[] tags, RoundingMode roundingMode) {
+        if (tags.length == 0 || tags.length > MAX_TAGS) {
+            throw new IllegalArgumentException("From 1 to " + MAX_TAGS + " tags expected: " + tags.length);
+        }
+        this.tags = tags.clone();
+        this.slots = new byte[DIRECT_TAGS];
+        Arrays.fill(slots, (byte) -1);
+        for (int i = 0; i < tags.length; i++) {
+            if (tags[i] <= 0 || tags[i] >= MAX_TAG) {
+                throw new IllegalArgumentException("Incorrect tag: " + tags[i]);
+            }
+            for (int j = 0; j < i; j++) {
+                if (tags[j] == tags[i]) {
+                    throw new IllegalArgumentException("Duplicate tag: " + tags[i]);
+                }
+            }
+            if (tags[i] < DIRECT_TAGS) {
+                slots[tags[i]] = (byte) i;
+            }
+        }
+        this.allTags = tags.length == MAX_TAGS ? -1 : (1L << tags.length) - 1;
+        this.roundingMode = roundingMode;
+    }
+
+    /**
+     * Scans the message and parses values of the configured tags into targets
+     *
+     * @param targets decimals for the values, targets[i] for tags[i], not changed if the tag is not found
+     * @return bit mask of successfully parsed tags, bit i is set for tags[i]
+     */
+    public long scan(byte[] message, int offset, int length, AbstractDecimal<?>[] targets) {
+        return scan(message, null, offset, offset + length, targets);
+    }
+
+    /**
+     * Same as {@link #scan(byte[], int, int, AbstractDecimal[])} for a buffer (absolute offset, the position is not changed)
+     */
+    public long scan(ByteBuffer message, int offset, int length, AbstractDecimal<?>[] targets) {
+        return scan(null, message, offset, offset + length, targets);
+    }
+
+    private long scan(byte[] array, ByteBuffer buffer, int offset, int end, AbstractDecimal<?>[] targets) {
+        if (targets.length < tags.length) {
+            throw new IllegalArgumentException("Expected " + tags.length + " targets: " + targets.length);
+        }
+
+        long seen = 0;
+        long parsed = 0;
+        while (offset < end && seen != allTags) {
+            // tag
+            int tagStart = offset;
+            int tag = 0;
+            byte ch;
+            while (offset < end && (ch = get(array, buffer, offset)) >= '0' && ch <= '9') {
+                tag = Math.min(tag * 10 + ch - '0', MAX_TAG);
+                offset++;
+            }
+            boolean valid = offset > tagStart && offset < end && get(array, buffer, offset) == '=';
+
+            // value
+            int valueStart = ++offset;
+            while (offset < end && get(array, buffer, offset) != SOH) {
+                offset++;
+            }
+
+            int slot = valid ? slot(tag) : -1;
+            if (slot >= 0 && (seen & (1L << slot)) == 0) {
+                seen |= 1L << slot;
+                AsciiSequence value = array != null ? sequence.wrap(array, valueStart, offset - valueStart) :
+                        sequence.wrap(buffer, valueStart, offset - valueStart);
+                if (targets[slot].tryParse(value, 0, value.length(), roundingMode)) {
+                    parsed |= 1L << slot;
+                }
+            }
+            offset++; // SOH
+        }
+        return parsed;
+    }
+
+    private int slot(int tag) {
+        if (tag < DIRECT_TAGS) {
+            return slots[tag];
+        }
+        for (int i = 0; i < tags.length; i++) {
+            if (tags[i] == tag) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static byte get(byte[] array, ByteBuffer buffer, int index) {
+        return array != null ? array[index] : buffer.get(index);
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+
+/**
+ * Streaming JSON number codec for decimals: writes values as JSON numbers straight to byte arrays or buffers
+ * (see {@link DecimalFormatter}) and parses JSON number tokens (RFC 8259 grammar, including exponents)
+ * straight from byte ranges into target decimals (see {@link AbstractDecimal#tryParse}), no Strings are created.
+ * {@link AbstractDecimal#NaN} is written and read as "null".
+ * <p>
+ * Can be used with any JSON tokenizer exposing byte ranges of values, {@link #numberLength} finds the end of
+ * a number token. Non-allocating. Not thread-safe (one codec per thread), the configuration is immutable.
+ */
+public final class JsonDecimalCodec {
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+
+    private final DecimalFormatter formatter;
+    private final RoundingMode roundingMode;
+    private final AsciiSequence sequence = new AsciiSequence();
+
+    /**
+     * Creates a codec writing exactly {@link AbstractDecimal#getScale} fraction digits (as {@link AbstractDecimal#toString})
+     * and reading numbers without rounding (numbers with extra non-zero digits are not accepted)
+     */
+    public JsonDecimalCodec() {
+        this(new DecimalFormatter(), RoundingMode.UNNECESSARY);
+    }
+
+    /**
+     * @param minFractionDigits trailing zeroes are stripped down to it when writing
+     * @param roundingMode used when reading numbers with more fraction digits than the scale of the target
+     */
+    public JsonDecimalCodec(int minFractionDigits, RoundingMode roundingMode) {
+        this(new DecimalFormatter().withMinFractionDigits(minFractionDigits), roundingMode);
+    }
+
+    private JsonDecimalCodec(DecimalFormatter formatter, RoundingMode roundingMode) {
+        this.formatter = formatter;
+        this.roundingMode = roundingMode;
+    }
+
+    /**
+     * @return number of bytes the value is written to
+     */
+    public int length(AbstractDecimal<?> value) {
+        return value.isNaN() ? NULL.length : formatter.length(value);
+    }
+
+    /**
+     * Writes the value from the offset
+     *
+     * @return number of bytes written
+     */
+    public int write(AbstractDecimal<?> value, byte[] dst, int offset) {
+        if (value.isNaN()) {
+            System.arraycopy(NULL, 0, dst, offset, NULL.length);
+            return NULL.length;
+        }
+        return formatter.format(value, dst, offset);
+    }
+
+    /**
+     * Writes the value from the position of the buffer, the position is advanced
+     *
+     * @return number of bytes written
+     */
+    public int write(AbstractDecimal<?> value, ByteBuffer dst) {
+        if (value.isNaN()) {
+            dst.put(NULL);
+            return NULL.length;
+        }
+        return formatter.format(value, dst);
+    }
+
+    /**
+     * Parses a JSON number (or null) token into the target
+     *
+     * @return false if the token is not a JSON number, overflows or requires rounding with
+     * {@link RoundingMode#UNNECESSARY} (the target is set to {@link AbstractDecimal#NaN})
+     */
+    public boolean read(byte[] src, int offset, int length, AbstractDecimal<?> target) {
+        return read(src, null, offset, length, target);
+    }
+
+    /**
+     * Same as {@link #read(byte[], int, int, AbstractDecimal)} for a buffer (absolute offset, the position is not changed)
+     */
+    public boolean read(ByteBuffer src, int offset, int length, AbstractDecimal<?> target) {
+        return read(null, src, offset, length, target);
+    }
+
+    /**
+     * @return length of the JSON number token starting from the offset (the longest valid prefix up to end),
+     * 0 if there is no number
+     */
+    public static int numberLength(byte[] src, int offset, int end) {
+        return numberLength(src, null, offset, end);
+    }
+
+    /**
+     * Same as {@link #numberLength(byte[], int, int)} for a buffer (absolute offsets)
+     */
+    public static int numberLength(ByteBuffer src, int offset, int end) {
+        return numberLength(null, src, offset, end);
+    }
+
+    private boolean read(byte[] array, ByteBuffer buffer, int offset, int length, AbstractDecimal<?> target) {
+        if (length == NULL.length && isNull(array, buffer, offset)) {
+            target.setRaw(AbstractDecimal.NaN);
+            return true;
+        }
+        if (length == 0 || numberLength(array, buffer, offset, offset + length) != length) {
+            target.setRaw(AbstractDecimal.NaN);
+            return false;
+        }
+        AsciiSequence number = array != null ? sequence.wrap(array, offset, length) : sequence.wrap(buffer, offset, length);
+        return target.tryParse(number, 0, length, roundingMode);
+    }
+
+    private static boolean isNull(byte[] array, ByteBuffer buffer, int offset) {
+        for (int i = 0; i < NULL.length; i++) {
+            if (get(array, buffer, offset + i) != NULL[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * -?(0|[1-9][0-9]*)(\.[0-9]+)?([eE][+-]?[0-9]+)?
+     */
+    private static int numberLength(byte[] array, ByteBuffer buffer, int offset, int end) {
+        int i = offset;
+        if (i < end && get(array, buffer, i) == '-') {
+            i++;
+        }
+        if (i == end) {
+            return 0;
+        }
+        if (get(array, buffer, i) == '0') {
+            i++;
+        } else {
+            int digits = skipDigits(array, buffer, i, end);
+            if (digits == i) {
+                return 0;
+            }
+            i = digits;
+        }
+        int length = i - offset;
+
+        if (i < end && get(array, buffer, i) == '.') {
+            int digits = skipDigits(array, buffer, i + 1, end);
+            if (digits == i + 1) {
+                return length;
+            }
+            i = digits;
+            length = i - offset;
+        }
+
+        if (i < end && (get(array, buffer, i) | 0x20) == 'e') {
+            i++;
+            if (i < end && (get(array, buffer, i) == '+' || get(array, buffer, i) == '-')) {
+                i++;
+            }
+            int digits = skipDigits(array, buffer, i, end);
+            if (digits > i) {
+                length = digits - offset;
+            }
+        }
+        return length;
+    }
+
+    private static int skipDigits(byte[] array, ByteBuffer buffer, int offset, int end) {
+        while (offset < end) {
+            byte ch = get(array, buffer, offset);
+            if (ch < '0' || ch > '9') {
+                break;
+            }
+            offset++;
+        }
+        return offset;
+    }
+
+    private static byte get(byte[] array, ByteBuffer buffer, int index) {
+        return array != null ? array[index] : buffer.get(index);
+    }
+}
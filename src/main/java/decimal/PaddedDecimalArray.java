@@ -0,0 +1,236 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-size array of decimals with the scale of T, each raw value padded to its own pair of cache lines
+ * (like {@code @Contended} fields), so that elements updated by different threads (e.g. per-strategy P&amp;L)
+ * don't invalidate each other's cache lines.
+ * <p>
+ * {@link #get}/{@link #set} have acquire/release semantics: a reader seeing a value also sees everything the writer
+ * did before setting it. Updates like {@link #add} are read-modify-write without atomicity, each element must have
+ * a single writer thread ({@link #compareAndSetRaw} can be used otherwise). A {@link Cell} flyweight gives
+ * an element the full {@link AbstractDecimal} API.
+ */
+public final class PaddedDecimalArray<T extends AbstractDecimal<T>> {
+    private static final VarHandle RAW = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final int STRIDE = 16; // longs, 2 cache lines (adjacent line prefetch)
+
+    private final int scale;
+    private final int length;
+    private final long[] raws;
+
+    /**
+     * Creates an array of the scale of T filled with zeroes
+     */
+    public PaddedDecimalArray(T prototype, int length) {
+        if (length < 0 || length > Integer.MAX_VALUE / STRIDE - 2) {
+            throw new IllegalArgumentException("Invalid length: " + length);
+        }
+        this.scale = prototype.getScale();
+        this.length = length;
+        this.raws = new long[(length + 2) * STRIDE];
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public long getRaw(int index) {
+        return (long) RAW.getAcquire(raws, slot(index));
+    }
+
+    public void setRaw(int index, long raw) {
+        RAW.setRelease(raws, slot(index), raw);
+    }
+
+    public boolean compareAndSetRaw(int index, long expected, long raw) {
+        return RAW.compareAndSet(raws, slot(index), expected, raw);
+    }
+
+    /**
+     * @return target with the value of the element
+     */
+    public T get(int index, T target) {
+        checkScale(target);
+        return target.setRaw(getRaw(index));
+    }
+
+    public void set(int index, T value) {
+        checkScale(value);
+        setRaw(index, value.getRaw());
+    }
+
+    /**
+     * Adds the value of the same scale to the element (no rounding), single writer only
+     */
+    public void add(int index, T value) {
+        checkScale(value);
+        int slot = slot(index);
+        long raw = (long) RAW.get(raws, slot); // own writes
+        long add = value.getRaw();
+        long sum = raw + add;
+        if (raw == AbstractDecimal.NaN || add == AbstractDecimal.NaN || ((raw ^ sum) & (add ^ sum)) < 0) {
+            sum = AbstractDecimal.NaN;
+        }
+        RAW.setRelease(raws, slot, sum);
+    }
+
+    /**
+     * Adds the value (of any scale) to the element, single writer only, see {@link AbstractDecimal#add(AbstractDecimal, RoundingMode)}
+     */
+    public void add(int index, AbstractDecimal<?> value, RoundingMode roundingMode) {
+        int slot = slot(index);
+        long raw = (long) RAW.get(raws, slot); // own writes
+        RAW.setRelease(raws, slot, RawDecimal.scratch(scale).setRaw(raw).add(value, roundingMode).getRaw());
+    }
+
+    /**
+     * @return new flyweight over the elements, not pointing to any of them until {@link Cell#at}
+     */
+    public Cell cell() {
+        return new Cell(this);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        RawDecimal scratch = RawDecimal.scratch(scale);
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            scratch.setRaw(getRaw(i)).toStringBuilder(sb);
+        }
+        return sb.append(']').toString();
+    }
+
+    private int slot(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of " + length);
+        }
+        return (index + 1) * STRIDE;
+    }
+
+    private void checkScale(AbstractDecimal<?> value) {
+        if (value.getScale() != scale) {
+            throw new IllegalArgumentException("Scales must be the same");
+        }
+    }
+
+    /**
+     * Flyweight decimal reading (acquire) and writing (release) an element of the array, e.g.
+     * <pre>
+     * pnl.at(strategy).add(fillPnl, RoundingMode.HALF_EVEN);
+     * </pre>
+     * Operations on a cell are single writer only, as {@link PaddedDecimalArray#add}.
+     */
+    public static final class Cell extends AbstractDecimal<Cell> {
+        private final PaddedDecimalArray<?> array;
+        private int slot = -1; // accessing the value throws IndexOutOfBoundsException until at() is called
+
+        private Cell(PaddedDecimalArray<?> array) {
+            this.array = array;
+        }
+
+        /**
+         * Points this to the element
+         */
+        public Cell at(int index) {
+            slot = array.slot(index);
+            return this;
+        }
+
+        @Override
+        protected int getScale() {
+            return array.scale;
+        }
+
+        @Override
+        public long getRaw() {
+            return (long) RAW.getAcquire(array.raws, slot);
+        }
+
+        @Override
+        public Cell setRaw(long raw) {
+            assert !frozen : "Frozen decimal must not be changed";
+            RAW.setRelease(array.raws, slot, raw);
+            return this;
+        }
+
+        @Override
+        public long getRawVolatile() {
+            return (long) RAW.getVolatile(array.raws, slot);
+        }
+
+        @Override
+        public Cell setRawVolatile(long raw) {
+            assert !frozen : "Frozen decimal must not be changed";
+            RAW.setVolatile(array.raws, slot, raw);
+            return this;
+        }
+
+        @Override
+        public long getRawAcquire() {
+            return getRaw();
+        }
+
+        @Override
+        public Cell setRawRelease(long raw) {
+            return setRaw(raw);
+        }
+
+        @Override
+        public long getRawOpaque() {
+            return (long) RAW.getOpaque(array.raws, slot);
+        }
+
+        @Override
+        public Cell setRawOpaque(long raw) {
+            assert !frozen : "Frozen decimal must not be changed";
+            RAW.setOpaque(array.raws, slot, raw);
+            return this;
+        }
+
+        @Override
+        public boolean compareAndSetRaw(long expected, long raw) {
+            assert !frozen : "Frozen decimal must not be changed";
+            return RAW.compareAndSet(array.raws, slot, expected, raw);
+        }
+
+        /**
+         * Flyweights are not serializable, copy the value to a heap decimal instead
+         */
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            throw new NotSerializableException(getClass().getName());
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+/**
+ * Decimal with the scale defined on construction, used internally to apply {@link AbstractDecimal} operations
+ * to raw values of a scale known only at runtime (e.g. read from a file header)
+ */
+final class RawDecimal extends AbstractDecimal<RawDecimal> {
+    private static final ThreadLocal<RawDecimal[]> SCRATCH = ThreadLocal.withInitial(() -> {
+        RawDecimal[] scratch = new RawDecimal[10];
+        for (int scale = 0; scale < scratch.length; scale++) {
+            scratch[scale] = new RawDecimal(scale);
+        }
+        return scratch;
+    });
+
+    private final int scale;
+
+    RawDecimal(int scale) {
+        DecimalColumns.checkScale(scale);
+        this.scale = scale;
+    }
+
+    /**
+     * @return decimal of the scale confined to the current thread, for calculations not calling other code
+     */
+    static RawDecimal scratch(int scale) {
+        return SCRATCH.get()[scale];
+    }
+
+    @Override
+    protected int getScale() {
+        return scale;
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Group of raw decimals of declared scales (e.g. bid, ask, bid size, ask size) published atomically by a single writer
+ * and read as a consistent snapshot by any number of readers, using a sequence lock: no locks, no allocation, the
+ * writer never waits and readers retry if the group was changed while they were reading.
+ * <p>
+ * Writer (single thread):
+ * <pre>
+ * quote.beginWrite();
+ * quote.set(BID, bid);
+ * quote.set(ASK, ask);
+ * quote.endWrite();
+ * </pre>
+ * Reader, either {@link #read(long[])} or optimistically:
+ * <pre>
+ * long stamp;
+ * do {
+ *     stamp = quote.readStamp();
+ *     quote.get(BID, bid);
+ *     quote.get(ASK, ask);
+ * } while (!quote.validate(stamp));
+ * </pre>
+ */
+public final class SeqLockDecimals {
+    private static final VarHandle SEQUENCE;
+    private static final VarHandle RAW = MethodHandles.arrayElementVarHandle(long[].class);
+
+    static {
+        try {
+            SEQUENCE = MethodHandles.lookup().findVarHandle(SeqLockDecimals.class, "sequence", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final int[] scales;
+    private final long[] raws;
+    private volatile long sequence; // odd while writing
+
+    /**
+     * Creates a group of zeroes
+     *
+     * @param scales scale of each decimal (0..9)
+     */
+    public SeqLockDecimals(int... scales) {
+        for (int scale : scales) {
+            DecimalColumns.checkScale(scale);
+        }
+        this.scales = scales.clone();
+        this.raws = new long[scales.length];
+    }
+
+    public int size() {
+        return raws.length;
+    }
+
+    public int getScale(int index) {
+        return scales[index];
+    }
+
+    /**
+     * Starts an update, must be followed by {@link #endWrite}
+     */
+    public void beginWrite() {
+        long sequence = (long) SEQUENCE.get(this);
+        assert (sequence & 1) == 0 : "Already writing";
+        SEQUENCE.setOpaque(this, sequence + 1);
+        VarHandle.storeStoreFence(); // the odd sequence is visible before any value
+    }
+
+    /**
+     * Publishes the values set since {@link #beginWrite}
+     */
+    public void endWrite() {
+        long sequence = (long) SEQUENCE.get(this);
+        assert (sequence & 1) != 0 : "Not writing";
+        SEQUENCE.setRelease(this, sequence + 1);
+    }
+
+    /**
+     * Sets a raw value (between {@link #beginWrite} and {@link #endWrite})
+     */
+    public void setRaw(int index, long raw) {
+        RAW.setOpaque(raws, index, raw);
+    }
+
+    /**
+     * Sets a value of the scale of the index (between {@link #beginWrite} and {@link #endWrite})
+     */
+    public void set(int index, AbstractDecimal<?> value) {
+        checkScale(index, value);
+        setRaw(index, value.getRaw());
+    }
+
+    /**
+     * Starts an optimistic read, waiting for a concurrent update to finish
+     *
+     * @return stamp to pass to {@link #validate}
+     */
+    public long readStamp() {
+        long sequence;
+        while (((sequence = (long) SEQUENCE.getAcquire(this)) & 1) != 0) {
+            Thread.onSpinWait();
+        }
+        return sequence;
+    }
+
+    /**
+     * @return true if the values read since {@link #readStamp} are consistent, otherwise they must be read again
+     */
+    public boolean validate(long stamp) {
+        VarHandle.loadLoadFence(); // values are read before the sequence
+        return (long) SEQUENCE.getOpaque(this) == stamp;
+    }
+
+    /**
+     * Reads a raw value (between {@link #readStamp} and {@link #validate})
+     */
+    public long getRaw(int index) {
+        return (long) RAW.getOpaque(raws, index);
+    }
+
+    /**
+     * Reads a value of the scale of the index to target (between {@link #readStamp} and {@link #validate})
+     *
+     * @return target
+     */
+    public <T extends AbstractDecimal<T>> T get(int index, T target) {
+        checkScale(index, target);
+        return target.setRaw(getRaw(index));
+    }
+
+    /**
+     * Copies a consistent snapshot of all raw values, retrying while they are being updated
+     */
+    public void read(long[] dst) {
+        if (dst.length < raws.length) {
+            throw new IllegalArgumentException("Destination is shorter than " + raws.length);
+        }
+        long stamp;
+        do {
+            stamp = readStamp();
+            for (int i = 0; i < raws.length; i++) {
+                dst[i] = getRaw(i);
+            }
+        } while (!validate(stamp));
+    }
+
+    @Override
+    public String toString() {
+        long[] snapshot = new long[raws.length];
+        read(snapshot);
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < snapshot.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            RawDecimal.scratch(scales[i]).setRaw(snapshot[i]).toStringBuilder(sb);
+        }
+        return sb.append(']').toString();
+    }
+
+    private void checkScale(int index, AbstractDecimal<?> value) {
+        if (value.getScale() != scales[index]) {
+            throw new IllegalArgumentException("Scales must be the same");
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.math.RoundingMode;
+
+/**
+ * Compact serialized form of a decimal, written instead of it by {@link AbstractDecimal#writeReplace}:
+ * the class name (shared by the stream after the first value), the scale (byte) and the raw value
+ * (var long, see {@link DecimalCodec}). Only this class is described in the stream, not the hierarchy of the decimal.
+ * <p>
+ * Used for classes with a no-arg constructor (of any access) and without serializable fields of their own,
+ * e.g. {@link Decimal}. The value is rescaled on reading if the scale of the class has changed.
+ */
+final class SerializedDecimal implements Externalizable {
+    private static final long serialVersionUID = 1L;
+    private static final ClassValue<Constructor<?>> CONSTRUCTORS = new ClassValue<Constructor<?>>() {
+        @Override
+        protected Constructor<?> computeValue(Class<?> type) {
+            return constructor(type);
+        }
+    };
+
+    private String type;
+    private int scale;
+    private long raw;
+
+    /**
+     * For deserialization only
+     */
+    public SerializedDecimal() {
+    }
+
+    SerializedDecimal(String type, int scale, long raw) {
+        this.type = type;
+        this.scale = scale;
+        this.raw = raw;
+    }
+
+    /**
+     * @return the compact form of the value if the class supports it, the value itself otherwise
+     */
+    static Object replace(AbstractDecimal<?> value) {
+        return CONSTRUCTORS.get(value.getClass()) != null ?
+                new SerializedDecimal(value.getClass().getName(), value.getScale(), value.getRaw()) : value;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeObject(type);
+        out.writeByte(scale);
+        DecimalCodec.putVarLong(raw, out);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        Object type = in.readObject();
+        if (!(type instanceof String)) {
+            throw new InvalidObjectException("Class name expected: " + type);
+        }
+        this.type = (String) type;
+        scale = in.readByte();
+        try {
+            raw = DecimalCodec.getVarLong(in);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidObjectException(e.getMessage());
+        }
+    }
+
+    private Object readResolve() throws ObjectStreamException {
+        Class<?> decimalClass;
+        try {
+            decimalClass = Class.forName(type, false, SerializedDecimal.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new InvalidClassException(type, "Class not found");
+        }
+        Constructor<?> constructor = AbstractDecimal.class.isAssignableFrom(decimalClass) ?
+                CONSTRUCTORS.get(decimalClass) : null;
+        if (constructor == null) {
+            throw new InvalidClassException(type, "Not a decimal with the compact serialized form");
+        }
+
+        AbstractDecimal<?> value;
+        try {
+            value = (AbstractDecimal<?>) constructor.newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new InvalidClassException(type, "Can't create: " + e);
+        }
+        if (scale == value.getScale() || raw == AbstractDecimal.NaN) {
+            value.setRaw(raw);
+        } else if (value.fromLong(raw, scale, RoundingMode.UNNECESSARY).isNaN()) {
+            throw new InvalidObjectException("Can't rescale " + raw + " from " + scale + " to " + value.getScale());
+        }
+        return value;
+    }
+
+    /**
+     * @return accessible no-arg constructor of a concrete decimal class without serializable fields below
+     * {@link AbstractDecimal}, null if the class doesn't support the compact form
+     */
+    private static Constructor<?> constructor(Class<?> type) {
+        if (Modifier.isAbstract(type.getModifiers())) {
+            return null;
+        }
+        for (Class<?> c = type; c != AbstractDecimal.class; c = c.getSuperclass()) {
+            ObjectStreamClass descriptor = ObjectStreamClass.lookup(c);
+            if (descriptor == null || descriptor.getFields().length > 0) {
+                return null;
+            }
+        }
+        try {
+            Constructor<?> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor;
+        } catch (NoSuchMethodException | RuntimeException e) {
+            return null; // e.g. the class is in a module not opened to this one
+        }
+    }
+}
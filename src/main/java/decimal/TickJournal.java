@@ -0,0 +1,382 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.RoundingMode;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Append-only journal of (timestamp, price raw, quantity raw) records in memory-mapped segment files of a directory.
+ * <p>
+ * Records are fixed-size (3 little-endian longs) and timestamps must be non-decreasing, so the records themselves
+ * form a time index: the segment of a record is found by its index, a timestamp by the binary search over records.
+ * Segments are named by the index of their first record and contain the same number of records, the header keeps
+ * the number of committed records of the segment (used on reopen).
+ * <p>
+ * One thread appends, any number of threads read with their own {@link Cursor}s directly from the mapped segments
+ * (no copying). Records are visible to readers once {@link #append} returns.
+ */
+public final class TickJournal implements Closeable {
+    public static final int DEFAULT_SEGMENT_RECORDS = 1 << 20;
+    static final String SUFFIX = ".ticks";
+    static final int RECORD_SIZE = 24;
+    static final int HEADER_SIZE = 64;
+    private static final int MAGIC = 0x5449434B; // "TICK"
+    private static final int VERSION = 1;
+    private static final int PRICE_SCALE_OFFSET = 8;
+    private static final int QUANTITY_SCALE_OFFSET = 12;
+    private static final int CAPACITY_OFFSET = 16;
+    private static final int FIRST_INDEX_OFFSET = 24;
+    private static final int COUNT_OFFSET = 32;
+    private static final int MAX_SEGMENT_RECORDS = (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE;
+
+    private final Path directory;
+    private final int priceScale;
+    private final int quantityScale;
+    private final int segmentRecords;
+    private volatile MappedByteBuffer[] segments; // published before size
+    private volatile long size;
+    private final RawDecimal priceScratch;
+    private final RawDecimal quantityScratch;
+    private long lastTimestamp = Long.MIN_VALUE;
+    private boolean closed;
+
+    private TickJournal(Path directory, int priceScale, int quantityScale, int segmentRecords,
+                        MappedByteBuffer[] segments, long size) {
+        this.directory = directory;
+        this.priceScale = priceScale;
+        this.quantityScale = quantityScale;
+        this.segmentRecords = segmentRecords;
+        this.priceScratch = new RawDecimal(priceScale);
+        this.quantityScratch = new RawDecimal(quantityScale);
+        this.segments = segments;
+        this.size = size;
+        if (size > 0) {
+            lastTimestamp = timestamp(segments, size - 1);
+        }
+    }
+
+    /**
+     * Opens the journal with {@link #DEFAULT_SEGMENT_RECORDS} records per segment
+     */
+    public static TickJournal open(Path directory, int priceScale, int quantityScale) throws IOException {
+        return open(directory, priceScale, quantityScale, DEFAULT_SEGMENT_RECORDS);
+    }
+
+    /**
+     * Opens the journal in the directory (created if needed), existing segments must have the same scales
+     * and number of records
+     *
+     * @param priceScale scale of price raw values, see {@link AbstractDecimal#getRaw}
+     * @param quantityScale scale of quantity raw values
+     * @param segmentRecords number of records per segment file
+     */
+    public static TickJournal open(Path directory, int priceScale, int quantityScale, int segmentRecords)
+            throws IOException {
+        DecimalColumns.checkScale(priceScale);
+        DecimalColumns.checkScale(quantityScale);
+        if (segmentRecords <= 0 || segmentRecords > MAX_SEGMENT_RECORDS) {
+            throw new IllegalArgumentException("Incorrect number of records per segment: " + segmentRecords);
+        }
+        Files.createDirectories(directory);
+
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        files.sort(null); // names are zero-padded
+
+        MappedByteBuffer[] segments = new MappedByteBuffer[files.size()];
+        long size = 0;
+        for (int i = 0; i < segments.length; i++) {
+            MappedByteBuffer segment = map(files.get(i), segmentRecords);
+            if (segment.getInt(0) != MAGIC || segment.getInt(4) != VERSION ||
+                    segment.getInt(PRICE_SCALE_OFFSET) != priceScale ||
+                    segment.getInt(QUANTITY_SCALE_OFFSET) != quantityScale ||
+                    segment.getInt(CAPACITY_OFFSET) != segmentRecords ||
+                    segment.getLong(FIRST_INDEX_OFFSET) != (long) i * segmentRecords) {
+                throw new IOException("Incompatible segment " + files.get(i));
+            }
+            long count = segment.getLong(COUNT_OFFSET);
+            if (count < 0 || count > segmentRecords || count < segmentRecords && i < segments.length - 1) {
+                throw new IOException("Incomplete segment " + files.get(i));
+            }
+            segments[i] = segment;
+            size += count;
+        }
+        return new TickJournal(directory, priceScale, quantityScale, segmentRecords, segments, size);
+    }
+
+    public int getPriceScale() {
+        return priceScale;
+    }
+
+    public int getQuantityScale() {
+        return quantityScale;
+    }
+
+    /**
+     * @return number of committed records
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Appends a record (single writer)
+     *
+     * @throws IllegalArgumentException if the timestamp is less than the previous one
+     */
+    public void append(long timestamp, long priceRaw, long quantityRaw) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Closed");
+        }
+        if (timestamp < lastTimestamp) {
+            throw new IllegalArgumentException("Timestamp " + timestamp + " is less than previous " + lastTimestamp);
+        }
+        long index = size;
+        int segmentIndex = (int) (index / segmentRecords);
+        MappedByteBuffer[] segments = this.segments;
+        if (segmentIndex == segments.length) {
+            segments = Arrays.copyOf(segments, segmentIndex + 1);
+            segments[segmentIndex] = createSegment(index);
+            this.segments = segments;
+        }
+        MappedByteBuffer segment = segments[segmentIndex];
+        int count = (int) (index - (long) segmentIndex * segmentRecords);
+        int offset = HEADER_SIZE + count * RECORD_SIZE;
+        segment.putLong(offset, timestamp);
+        segment.putLong(offset + 8, priceRaw);
+        segment.putLong(offset + 16, quantityRaw);
+        segment.putLong(COUNT_OFFSET, count + 1);
+        lastTimestamp = timestamp;
+        size = index + 1; // publishes the record
+    }
+
+    /**
+     * Appends a record (single writer) with values rescaled to the scales of the journal
+     */
+    public void append(long timestamp, AbstractDecimal<?> price, AbstractDecimal<?> quantity, RoundingMode roundingMode)
+            throws IOException {
+        append(timestamp, priceScratch.set(price, roundingMode).getRaw(),
+                quantityScratch.set(quantity, roundingMode).getRaw());
+    }
+
+    /**
+     * Flushes the mapped segments to the storage
+     */
+    public void force() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    /**
+     * @return index of the first record with timestamp greater or equal to the given one ({@link #size} if none)
+     */
+    public long lowerBound(long timestamp) {
+        long high = size;
+        MappedByteBuffer[] segments = this.segments;
+        long low = 0;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (timestamp(segments, middle) < timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return new cursor positioned before the first record
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Forces the segments, the mappings are released when garbage-collected
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            force();
+            closed = true;
+        }
+    }
+
+    private long timestamp(MappedByteBuffer[] segments, long index) {
+        MappedByteBuffer segment = segments[(int) (index / segmentRecords)];
+        return segment.getLong(HEADER_SIZE + (int) (index % segmentRecords) * RECORD_SIZE);
+    }
+
+    private MappedByteBuffer createSegment(long firstIndex) throws IOException {
+        MappedByteBuffer segment = map(directory.resolve(String.format("%019d", firstIndex) + SUFFIX), segmentRecords);
+        segment.putInt(0, MAGIC);
+        segment.putInt(4, VERSION);
+        segment.putInt(PRICE_SCALE_OFFSET, priceScale);
+        segment.putInt(QUANTITY_SCALE_OFFSET, quantityScale);
+        segment.putInt(CAPACITY_OFFSET, segmentRecords);
+        segment.putLong(FIRST_INDEX_OFFSET, firstIndex);
+        segment.putLong(COUNT_OFFSET, 0);
+        return segment;
+    }
+
+    private static MappedByteBuffer map(Path file, int segmentRecords) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_SIZE + (long) segmentRecords * RECORD_SIZE);
+            segment.order(ByteOrder.LITTLE_ENDIAN);
+            return segment;
+        }
+    }
+
+    /**
+     * Sequential reader of the records, sees records appended after its creation.
+     * Not thread-safe, use a cursor per thread.
+     */
+    public final class Cursor {
+        private long index = -1;
+        private MappedByteBuffer segment;
+        private int offset;
+
+        private Cursor() {
+        }
+
+        /**
+         * Positions the cursor before the record with the index, so that {@link #next} moves to it
+         */
+        public Cursor seek(long index) {
+            if (index < 0) {
+                throw new IllegalArgumentException("Negative index: " + index);
+            }
+            this.index = index - 1;
+            this.segment = null;
+            return this;
+        }
+
+        /**
+         * Positions the cursor before the first record with timestamp greater or equal to the given one
+         */
+        public Cursor seekTime(long timestamp) {
+            return seek(lowerBound(timestamp));
+        }
+
+        /**
+         * Moves to the next record
+         *
+         * @return false if there are no more committed records (the cursor is not moved)
+         */
+        public boolean next() {
+            long next = index + 1;
+            if (next >= size) {
+                return false;
+            }
+            int recordIndex = (int) (next % segmentRecords);
+            if (segment == null || recordIndex == 0) {
+                segment = segments[(int) (next / segmentRecords)];
+            }
+            offset = HEADER_SIZE + recordIndex * RECORD_SIZE;
+            index = next;
+            return true;
+        }
+
+        /**
+         * Moves to the next record with timestamp less than the given one
+         *
+         * @return false if there are no more committed records or the timestamp of the next one is not less
+         */
+        public boolean nextBefore(long timestamp) {
+            long previous = index;
+            MappedByteBuffer previousSegment = segment;
+            int previousOffset = offset;
+            if (next()) {
+                if (timestamp() < timestamp) {
+                    return true;
+                }
+                index = previous;
+                segment = previousSegment;
+                offset = previousOffset;
+            }
+            return false;
+        }
+
+        /**
+         * @return index of the current record
+         */
+        public long index() {
+            return index;
+        }
+
+        public long timestamp() {
+            return segment.getLong(offset);
+        }
+
+        public long priceRaw() {
+            return segment.getLong(offset + 8);
+        }
+
+        public long quantityRaw() {
+            return segment.getLong(offset + 16);
+        }
+
+        /**
+         * Reads the price to the target (rescaling if needed)
+         *
+         * @return target
+         */
+        public <T extends AbstractDecimal<T>> T price(T target, RoundingMode roundingMode) {
+            return read(priceRaw(), priceScale, target, roundingMode);
+        }
+
+        /**
+         * Reads the quantity to the target (rescaling if needed)
+         *
+         * @return target
+         */
+        public <T extends AbstractDecimal<T>> T quantity(T target, RoundingMode roundingMode) {
+            return read(quantityRaw(), quantityScale, target, roundingMode);
+        }
+
+        private <T extends AbstractDecimal<T>> T read(long raw, int scale, T target, RoundingMode roundingMode) {
+            return raw == AbstractDecimal.NaN ? target.setRaw(raw) : target.fromLong(raw, scale, roundingMode);
+        }
+    }
+}
@@ -24,10 +24,13 @@
 package decimal.sample;
 
 import decimal.AbstractDecimal;
+import decimal.DecimalConstants;
 
 import java.text.ParseException;
 
 public class Price extends AbstractDecimal<Price> {
+    public static final DecimalConstants<Price> CONSTANTS = new DecimalConstants<>(Price::new);
+
     @Override
     protected int getScale() {
         return 8;
@@ -24,10 +24,13 @@
 package decimal.sample;
 
 import decimal.AbstractDecimal;
+import decimal.DecimalConstants;
 
 import java.text.ParseException;
 
 public class Quantity extends AbstractDecimal<Quantity> {
+    public static final DecimalConstants<Quantity> CONSTANTS = new DecimalConstants<>(Quantity::new);
+
     @Override
     protected int getScale() {
         return 2;
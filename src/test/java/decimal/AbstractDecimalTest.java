@@ -23,13 +23,27 @@
  */
 package decimal;
 
+import decimal.sample.Price;
+import decimal.sample.Quantity;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InvalidClassException;
+import java.io.InvalidObjectException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.math.RoundingMode;
 import java.text.ParseException;
+import java.util.Random;
 
+import static java.io.ObjectStreamConstants.TC_BLOCKDATA;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static decimal.AbstractDecimal.NaN;
@@ -75,6 +89,7 @@ public class AbstractDecimalTest {
         assertEquals("NaN", price.set(quantity).toString());
         assertEquals("-92233720368547758.00", quantity.fromLong(-92233720368547758L).toString());
         assertEquals("NaN", price.set(quantity).toString());
+        assertEquals("NaN", quantity.set(price.setRaw(NaN), RoundingMode.UP).toString());
     }
 
     @Test
@@ -161,6 +176,86 @@ public class AbstractDecimalTest {
         }
     }
 
+    @Test
+    public void testParseExponent() throws Exception {
+        assertEquals(15000, new TestDecimal(8).parse("1.5E-4").getRaw());
+        assertEquals(15000, new TestDecimal(8).parse("1.5e-4").getRaw());
+        assertEquals(2000, new TestDecimal(0).parse("2e3").getRaw());
+        assertEquals(2000, new TestDecimal(0).parse("2E+3").getRaw());
+        assertEquals(-200000, new TestDecimal(2).parse("-2e3").getRaw());
+        assertEquals(123, new TestDecimal(2).parse("123e-2").getRaw());
+        assertEquals(123, new TestDecimal(2).parse("0.0123e2").getRaw());
+        assertEquals(123, new TestDecimal(2).parse("12300000000000000000000e-22").getRaw());
+        assertEquals(0, new TestDecimal(2).parse("0e100000000000").getRaw());
+        assertEquals(0, new TestDecimal(2).parse("-0.000e-5").getRaw());
+        assertEquals(Long.MAX_VALUE, new TestDecimal(0).parse("9.223372036854775807e18").getRaw());
+        assertEquals(5, new TestDecimal(1).parse(".5").getRaw());
+
+        // rounding
+        assertEquals(12, new TestDecimal(2).parse("1.2345e-1", RoundingMode.DOWN).getRaw());
+        assertEquals(13, new TestDecimal(2).parse("1.2345e-1", RoundingMode.UP).getRaw());
+        assertEquals(-13, new TestDecimal(2).parse("-1.25e-1", RoundingMode.HALF_UP).getRaw());
+        assertEquals(12, new TestDecimal(2).parse("0.125", RoundingMode.HALF_EVEN).getRaw());
+        assertEquals(0, new TestDecimal(2).parse("1e-30", RoundingMode.DOWN).getRaw());
+        assertEquals(1, new TestDecimal(2).parse("1e-30", RoundingMode.UP).getRaw());
+
+        // more significant digits than a long holds
+        assertEquals(314, new TestDecimal(2).parse("3.14159265358979323846", RoundingMode.HALF_UP).getRaw());
+        assertEquals(-315, new TestDecimal(2).parse("-3.14159265358979323846", RoundingMode.UP).getRaw());
+        assertEquals(101, new TestDecimal(2).parse("1.00500000000000000000001", RoundingMode.HALF_EVEN).getRaw());
+        assertEquals(100, new TestDecimal(2).parse("1.00500000000000000000000", RoundingMode.HALF_EVEN).getRaw());
+        assertEquals(2, new TestDecimal(0).parse("1.00000000000000000000001", RoundingMode.CEILING).getRaw());
+        assertEquals(-1, new TestDecimal(0).parse("-1.00000000000000000000001", RoundingMode.CEILING).getRaw());
+        assertEquals(2, new TestDecimal(0).parse("1.50000000000000000000001", RoundingMode.HALF_DOWN).getRaw());
+        assertEquals(9223372036854775807L, new TestDecimal(0).parse("9223372036854775807.4999999999", RoundingMode.HALF_UP).getRaw());
+        assertEquals(123, new TestDecimal(2).parse("123456789012345678901234e-23", RoundingMode.HALF_UP).getRaw());
+        // zeroes between the full mantissa and the dropped digit
+        assertEquals("1234567890.123456789", new Decimal().parse("1234567890.12345678905", RoundingMode.HALF_UP).toString());
+        assertEquals("1234567890.123456789", new Decimal().parse("1234567890.1234567890500", RoundingMode.HALF_UP).toString());
+        assertEquals("1234567890.123456790", new Decimal().parse("1234567890.1234567895", RoundingMode.HALF_UP).toString());
+        assertEquals("1000000000.000000011", new Decimal().parse("1000000000.0000000105", RoundingMode.HALF_UP).toString());
+        assertEquals("1000000000.000000010", new Decimal().parse("1000000000.00000001049", RoundingMode.HALF_UP).toString());
+        assertEquals("1234567890.123456790", new Decimal().parse("1234567890.12345678901", RoundingMode.UP).toString());
+        assertExceptionWhileParsing("3.14159265358979323846"); // rounding required
+        assertExceptionWhileParsing("9223372036854775807.5", RoundingMode.HALF_UP);
+        assertExceptionWhileParsing("1234567890123456789012", RoundingMode.DOWN);
+        for (RoundingMode roundingMode : RoundingMode.values()) {
+            if (roundingMode == RoundingMode.UNNECESSARY) {
+                continue;
+            }
+            for (String value : new String[] {"0.123456789012345678901234567", "-98765432109.876543210987654321",
+                    "5.55555555555555555555", "-0.0000000000000000000000001", "2.5000000000000000000000",
+                    "922337203.68547758070000005", "-12345678.00000000000000000051", "1.00004999999999999999990"}) {
+                assertEquals(value + " " + roundingMode,
+                        new BigDecimal(value).setScale(4, roundingMode).unscaledValue().longValue(),
+                        new TestDecimal(4).parse(value, roundingMode).getRaw());
+            }
+        }
+
+        // offset and length
+        assertEquals(-15, new TestDecimal(2).parse("x=-1.5e-1;", 2, 7, RoundingMode.UNNECESSARY).getRaw());
+
+        assertExceptionWhileParsing("1.5e-1"); // rounding required
+        assertExceptionWhileParsing("1e19");
+        assertExceptionWhileParsing("1e100000000000");
+        assertExceptionWhileParsing("e5");
+        assertExceptionWhileParsing("1e");
+        assertExceptionWhileParsing("1e+");
+        assertExceptionWhileParsing("1e5.0");
+        assertExceptionWhileParsing("1.e5");
+        assertExceptionWhileParsing("-e5");
+        assertExceptionWhileParsing(".");
+
+        // the value is not changed on error
+        TestDecimal decimal = new TestDecimal(2).setRaw(123);
+        try {
+            decimal.parse("1.5e-3");
+            fail("Exception expected");
+        } catch (ParseException e) {
+            assertEquals(123, decimal.getRaw());
+        }
+    }
+
     @Test
     public void testToFromLong() throws Exception {
         assertEquals("123.0", new TestDecimal(1).fromLong(123).toString());
@@ -187,6 +282,10 @@ public class AbstractDecimalTest {
         assertEquals("1.0", new TestDecimal(1).fromLong(Long.MAX_VALUE, 19, RoundingMode.UP).toString());
         assertEquals("0.1", new TestDecimal(1).fromLong(Long.MAX_VALUE, 20, RoundingMode.UP).toString());
         assertEquals("0.1", new TestDecimal(1).fromLong(Long.MAX_VALUE, 21, RoundingMode.UP).toString());
+        assertEquals("3.14", new TestDecimal(2).fromLong(3141592653589793238L, 18, RoundingMode.HALF_UP).toString());
+        assertEquals("3.15", new TestDecimal(2).fromLong(3145000000000000000L, 18, RoundingMode.HALF_UP).toString());
+        assertEquals("3.14", new TestDecimal(2).fromLong(3145000000000000000L, 18, RoundingMode.HALF_EVEN).toString());
+        assertEquals("-3.14", new TestDecimal(2).fromLong(-3144999999000000001L, 18, RoundingMode.HALF_UP).toString());
 
         // huge negative scales
         assertEquals("1000000000.0", new TestDecimal(1).fromLongRD(1, -9).toString());
@@ -262,6 +361,91 @@ public class AbstractDecimalTest {
         assertTrue(Double.isNaN(new TestDecimal(2).setRaw(NaN).toDouble()));
     }
 
+    @Test
+    public void testFromDoubleExact() throws Exception {
+        assertEquals("1.15000000", new TestDecimal(8).fromDouble(1.15, RoundingMode.DOWN).toString());
+        assertEquals("-1.15000000", new TestDecimal(8).fromDouble(-1.15, RoundingMode.FLOOR).toString());
+        assertEquals("0.100000000", new TestDecimal(9).fromDouble(0.1, RoundingMode.UNNECESSARY).toString());
+        assertEquals("1.00", new TestDecimal(2).fromDouble(1.005, RoundingMode.HALF_UP).toString()); // 1.00499999...
+        assertEquals("1.01", new TestDecimal(2).fromDouble(1.005, RoundingMode.UP).toString());
+        assertEquals("NaN", new TestDecimal(2).fromDouble(1.005, RoundingMode.UNNECESSARY).toString());
+        assertEquals("123456789012.12", new TestDecimal(2).fromDouble(123456789012.12, RoundingMode.DOWN).toString());
+        assertEquals("1152921504606846976", new TestDecimal(0).fromDouble(Math.pow(2, 60), RoundingMode.DOWN).toString());
+        assertEquals("NaN", new TestDecimal(0).fromDouble(Math.pow(2, 63), RoundingMode.DOWN).toString());
+        assertEquals("9223372036854774784", new TestDecimal(0).fromDouble(Math.nextDown(Math.pow(2, 63)), RoundingMode.DOWN).toString());
+        assertEquals("0.000000000", new TestDecimal(9).fromDouble(Double.MIN_VALUE, RoundingMode.DOWN).toString());
+        assertEquals("0.000000001", new TestDecimal(9).fromDouble(Double.MIN_VALUE, RoundingMode.UP).toString());
+        assertEquals("-0.000000001", new TestDecimal(9).fromDouble(-Double.MIN_VALUE, RoundingMode.FLOOR).toString());
+        assertEquals("0", new TestDecimal(0).fromDouble(-0.0, RoundingMode.UP).toString());
+        assertEquals("NaN", new TestDecimal(0).fromDouble(Double.MAX_VALUE, RoundingMode.DOWN).toString());
+
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            double value = random.nextDouble() * Math.pow(10, random.nextInt(30) - 12) * (random.nextBoolean() ? 1 : -1);
+            if (i % 3 == 0) {
+                value = new BigDecimal(value).setScale(random.nextInt(10), RoundingMode.HALF_EVEN).doubleValue();
+            } else if (i % 3 == 1) {
+                value = Math.scalb(random.nextBoolean() ? 1.0 : Math.nextDown(1.0), random.nextInt(100) - 40);
+            }
+            int scale = random.nextInt(10);
+            for (RoundingMode roundingMode : RoundingMode.values()) {
+                assertEquals(value + " " + scale + " " + roundingMode, expectedFromDouble(value, scale, roundingMode),
+                        new TestDecimal(scale).fromDouble(value, roundingMode).getRaw());
+            }
+        }
+    }
+
+    private static long expectedFromDouble(double value, int scale, RoundingMode roundingMode) {
+        BigDecimal exact = new BigDecimal(value);
+        BigDecimal closest = exact.setScale(scale, RoundingMode.HALF_EVEN);
+        BigDecimal result;
+        if (closest.doubleValue() == value) {
+            result = closest;
+        } else if (roundingMode == RoundingMode.UNNECESSARY) {
+            return NaN;
+        } else {
+            result = exact.setScale(scale, roundingMode);
+        }
+        BigInteger unscaled = result.unscaledValue();
+        return unscaled.bitLength() < 64 && unscaled.longValue() != NaN ? unscaled.longValue() : NaN;
+    }
+
+    @Test
+    public void testToFromBigDecimal() throws Exception {
+        assertEquals(new BigDecimal("1.23"), quantity("1.23").toBigDecimal());
+        assertEquals(new BigDecimal("-0.00000001"), price("-0.00000001").toBigDecimal());
+        try {
+            quantity("NaN").toBigDecimal();
+            fail("Exception expected");
+        } catch (ArithmeticException e) {
+        }
+
+        assertEquals("1.23", quantity().fromBigDecimal(new BigDecimal("1.23"), RoundingMode.UNNECESSARY).toString());
+        assertEquals("1.23", quantity().fromBigDecimal(new BigDecimal("1.2300000"), RoundingMode.UNNECESSARY).toString());
+        assertEquals("1200.00", quantity().fromBigDecimal(new BigDecimal("1.2E+3"), RoundingMode.UNNECESSARY).toString());
+        assertEquals("1.24", quantity().fromBigDecimal(new BigDecimal("1.235"), RoundingMode.HALF_EVEN).toString());
+        assertEquals("-1.23", quantity().fromBigDecimal(new BigDecimal("-1.235"), RoundingMode.DOWN).toString());
+        assertEquals("NaN", quantity().fromBigDecimal(new BigDecimal("1.235"), RoundingMode.UNNECESSARY).toString());
+        assertEquals("NaN", quantity().fromBigDecimal(new BigDecimal("1e17"), RoundingMode.UNNECESSARY).toString());
+
+        // unscaled value does not fit long
+        assertEquals("1.23", quantity().fromBigDecimal(new BigDecimal("1.23000000000000000000000000"), RoundingMode.UNNECESSARY).toString());
+        assertEquals("1.24", quantity().fromBigDecimal(new BigDecimal("1.23000000000000000000000001"), RoundingMode.UP).toString());
+        assertEquals("NaN", quantity().fromBigDecimal(new BigDecimal("1.23000000000000000000000001"), RoundingMode.UNNECESSARY).toString());
+        assertEquals("NaN", quantity().fromBigDecimal(new BigDecimal("100000000000000000000000000"), RoundingMode.DOWN).toString());
+        assertEquals("NaN", quantity().fromBigDecimal(new BigDecimal("-100000000000000000.00000000001"), RoundingMode.DOWN).toString());
+
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            TestDecimal value = new TestDecimal(random.nextInt(10)).setRaw(random.nextLong() >> random.nextInt(64));
+            if (value.isNaN()) {
+                continue;
+            }
+            assertEquals(value.toString(), value.toBigDecimal().toPlainString());
+            assertEquals(value.getRaw(), value.clone().setRaw(0).fromBigDecimal(value.toBigDecimal(), RoundingMode.UNNECESSARY).getRaw());
+        }
+    }
+
     @Test
     public void testCompareTo() throws ParseException {
         assertTrue(new TestDecimal(1).parse("123").compareTo(new TestDecimal(1).parse("123")) == 0);
@@ -730,10 +914,164 @@ public class AbstractDecimalTest {
     }
 
     private void assertExceptionWhileParsing(String s) {
+        assertExceptionWhileParsing(s, RoundingMode.UNNECESSARY);
+    }
+
+    private void assertExceptionWhileParsing(String s, RoundingMode roundingMode) {
         try {
-            new TestDecimal(0).parse(s);
+            new TestDecimal(0).parse(s, roundingMode);
             fail("Exception expected");
         } catch (ParseException e) {
         }
     }
+
+    @Test
+    public void testConcurrentQueries() throws Exception {
+        final TestDecimal shared = new TestDecimal(8).setRaw(12345678987654321L); // 123456789.87654321
+        final TestDecimal other = new TestDecimal(2).setRaw(12345678988L);
+        final boolean[] failed = new boolean[1];
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 100000; j++) {
+                        if (shared.getRaw() != 12345678987654321L ||
+                                shared.toLong(RoundingMode.HALF_UP) != 123456790L ||
+                                shared.intValue() != 123456789 ||
+                                shared.compareTo(other) >= 0 ||
+                                shared.hashCode() != Long.hashCode(12345678987654321L) ||
+                                !shared.toString().equals("123456789.87654321")) {
+                            failed[0] = true;
+                        }
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertFalse(failed[0]);
+        assertEquals(12345678987654321L, shared.getRaw());
+    }
+
+    @Test
+    public void testMemoryOrdering() throws Exception {
+        TestDecimal decimal = new TestDecimal(2);
+        assertEquals(1, decimal.setRawRelease(1).getRawAcquire());
+        assertEquals(2, decimal.setRawOpaque(2).getRawOpaque());
+        assertEquals(3, decimal.setRawVolatile(3).getRawVolatile());
+        assertFalse(decimal.compareAndSetRaw(2, 4));
+        assertTrue(decimal.compareAndSetRaw(3, 4));
+        assertEquals("0.04", decimal.toString());
+
+        // republishing a single instance: the reader must see the payload written before each value
+        final TestDecimal price = new TestDecimal(8);
+        final long[] payload = new long[1];
+        final int count = 1000000;
+        Thread writer = new Thread() {
+            @Override
+            public void run() {
+                TestDecimal next = new TestDecimal(8);
+                for (int i = 1; i <= count; i++) {
+                    next.setRaw(i).mul(3);
+                    payload[0] = i;
+                    price.setRawRelease(next.getRaw());
+                }
+            }
+        };
+        writer.start();
+        long last = 0;
+        while (last < 3L * count) {
+            long raw = price.getRawAcquire();
+            assertTrue(raw % 3 == 0 && raw >= last && payload[0] >= raw / 3);
+            last = raw;
+        }
+        writer.join();
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        Object[] values = {Price.create("1.23456789"), Quantity.create("-100.5"), new Decimal().setRaw(NaN),
+                Decimal.MAX_VALUE, Decimal.MIN_VALUE};
+        assertArrayEquals(values, (Object[]) deserialize(serialize(values)));
+
+        // compact form for classes with a no-arg constructor
+        assertTrue(serialize(Price.create("1.23")).length < serialize(new TestDecimal(8).setRaw(123000000)).length);
+
+        // subclass with a constructor taking the scale is serialized as usual, fields of the subclass are kept
+        TestDecimal decimal = (TestDecimal) deserialize(serialize(new TestDecimal(3).setRaw(-1234)));
+        assertEquals("-1.234", decimal.toString());
+
+        // changed scale
+        assertEquals(Price.create("1.5"), deserialize(serialize(new SerializedDecimal(Price.class.getName(), 2, 150))));
+        assertEquals(Quantity.create("1.5"), deserialize(serialize(new SerializedDecimal(Quantity.class.getName(), 3, 1500))));
+        assertTrue(((Price) deserialize(serialize(new SerializedDecimal(Price.class.getName(), 2, NaN)))).isNaN());
+        try {
+            deserialize(serialize(new SerializedDecimal(Price.class.getName(), 9, 15))); // not exact at scale 8
+            fail("Exception expected");
+        } catch (InvalidObjectException e) {
+        }
+
+        // not a decimal with the compact form
+        for (String type : new String[] {"java.lang.String", TestDecimal.class.getName(), "decimal.NoSuchDecimal"}) {
+            try {
+                deserialize(serialize(new SerializedDecimal(type, 2, 150)));
+                fail("Exception expected");
+            } catch (InvalidClassException e) {
+            }
+        }
+
+        // non-canonical var long (block data: length, scale 8, var long 150)
+        byte[] bytes = serialize(Price.create("0.0000015"));
+        int offset = indexOf(bytes, new byte[] {TC_BLOCKDATA, 3, 8, (byte) 0xAC, 0x02}) + 3;
+        bytes[offset] = (byte) 0x81;
+        bytes[offset + 1] = 0;
+        try {
+            deserialize(bytes);
+            fail("Exception expected");
+        } catch (InvalidObjectException e) {
+        }
+
+        try {
+            serialize(new TestBufferDecimal().wrap(new byte[8], 0));
+            fail("Exception expected");
+        } catch (NotSerializableException e) {
+        }
+    }
+
+    private static class TestBufferDecimal extends BufferDecimal<TestBufferDecimal> {
+        @Override
+        protected int getScale() {
+            return 2;
+        }
+    }
+
+    private static int indexOf(byte[] bytes, byte[] pattern) {
+        for (int i = 0; i <= bytes.length - pattern.length; i++) {
+            int j = 0;
+            while (j < pattern.length && bytes[i + j] == pattern[j]) {
+                j++;
+            }
+            if (j == pattern.length) {
+                return i;
+            }
+        }
+        throw new AssertionError("Not found");
+    }
+
+    private static byte[] serialize(Object value) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] bytes) throws Exception {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
 }
@@ -0,0 +1,90 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static decimal.AbstractDecimal.NaN;
+
+public class ArrowDecimal128Test {
+    @Test
+    public void testWriteRead() throws Exception {
+        long[] raw = {1, -1, NaN, Long.MAX_VALUE, -Long.MAX_VALUE, 0, 123456789, NaN, 42};
+        ByteBuffer values = ByteBuffer.allocate(ArrowDecimal128.valuesSize(raw.length) + 3);
+        ByteBuffer validity = ByteBuffer.allocateDirect(ArrowDecimal128.validitySize(raw.length));
+        values.position(3);
+        assertEquals(2, ArrowDecimal128.write(raw, 0, raw.length, values, validity));
+        assertEquals(3, values.position());
+        assertEquals(2, validity.capacity());
+        assertEquals((byte) 0x7B, validity.get(0));
+        assertEquals(1, validity.get(1));
+
+        // little-endian two's complement
+        byte[] bytes = values.array();
+        assertEquals(1, bytes[3]);
+        assertEquals(0, bytes[3 + 15]);
+        for (int i = 0; i < 16; i++) {
+            assertEquals(-1, bytes[3 + 16 + i]);
+            assertEquals(0, bytes[3 + 32 + i]);
+        }
+        assertEquals(BigInteger.valueOf(-Long.MAX_VALUE), toBigInteger(bytes, 3 + 16 * 4));
+
+        long[] result = new long[raw.length];
+        assertEquals(2, ArrowDecimal128.read(values, validity, raw.length, 4, result, 0, 4, RoundingMode.UNNECESSARY));
+        assertArrayEquals(raw, result);
+    }
+
+    @Test
+    public void testRead() throws Exception {
+        ByteBuffer values = ByteBuffer.allocateDirect(5 * 16).order(ByteOrder.BIG_ENDIAN);
+        ByteBuffer little = values.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        little.putLong(0, 123456789).putLong(8, 0);
+        little.putLong(16, -15).putLong(24, -1);
+        little.putLong(32, 5).putLong(40, 1); // 2^64 + 5
+        little.putLong(48, NaN).putLong(56, -1); // fits 128 bits but not the raw range
+        little.putLong(64, Long.MAX_VALUE).putLong(72, 0);
+
+        long[] result = new long[5];
+        assertEquals(2, ArrowDecimal128.read(values, null, 5, 4, result, 0, 2, RoundingMode.HALF_UP));
+        assertArrayEquals(new long[] {1234568, 0, NaN, NaN, 92233720368547758L}, result);
+        assertEquals(3, ArrowDecimal128.read(values, null, 5, 4, result, 0, 6, RoundingMode.UNNECESSARY));
+        assertArrayEquals(new long[] {12345678900L, -1500, NaN, NaN, NaN}, result);
+        assertEquals(ByteOrder.BIG_ENDIAN, values.order());
+    }
+
+    private static BigInteger toBigInteger(byte[] bytes, int offset) {
+        byte[] bigEndian = new byte[16];
+        for (int i = 0; i < 16; i++) {
+            bigEndian[i] = bytes[offset + 15 - i];
+        }
+        return new BigInteger(bigEndian);
+    }
+}
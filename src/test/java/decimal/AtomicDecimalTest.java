@@ -0,0 +1,99 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import org.junit.Test;
+
+import java.math.RoundingMode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static decimal.AbstractDecimal.NaN;
+
+public class AtomicDecimalTest {
+    private final TestDecimal result = new TestDecimal(2);
+
+    @Test
+    public void testOperations() throws Exception {
+        AtomicDecimal<TestDecimal> cell = new AtomicDecimal<>(new TestDecimal(2).setRaw(150));
+        assertEquals(150, cell.get(result).getRaw());
+        assertEquals("1.50", cell.toString());
+
+        assertEquals(275, cell.addAndGet(new TestDecimal(2).setRaw(125), result).getRaw());
+        assertEquals(278, cell.addAndGet(new TestDecimal(4).setRaw(250), RoundingMode.HALF_UP, result).getRaw());
+        assertEquals(278, cell.getAndAdd(new TestDecimal(0).setRaw(1), RoundingMode.UNNECESSARY, result).getRaw());
+        assertEquals(378, cell.getRaw());
+        assertEquals(377, cell.subtractAndGet(new TestDecimal(3).setRaw(5), RoundingMode.DOWN, result).getRaw());
+        assertEquals(754, cell.mulAndGet(new TestDecimal(1).setRaw(20), RoundingMode.DOWN, result).getRaw());
+        assertEquals(251, cell.divAndGet(new TestDecimal(0).setRaw(3), RoundingMode.HALF_UP, result).getRaw());
+
+        assertFalse(cell.compareAndSet(new TestDecimal(2).setRaw(250), new TestDecimal(2).setRaw(1)));
+        assertTrue(cell.compareAndSet(new TestDecimal(2).setRaw(251), new TestDecimal(2).setRaw(1)));
+        assertEquals(1, cell.getAndSet(new TestDecimal(2).setRaw(2), result).getRaw());
+        assertTrue(cell.compareAndSetRaw(2, 3));
+        cell.set(result.setRaw(4));
+        assertEquals(4, cell.getRaw());
+    }
+
+    @Test
+    public void testNaN() throws Exception {
+        AtomicDecimal<TestDecimal> cell = new AtomicDecimal<>(new TestDecimal(2).setRaw(Long.MAX_VALUE - 1));
+        assertEquals(NaN, cell.addAndGet(new TestDecimal(2).setRaw(2), result).getRaw());
+        assertEquals(NaN, cell.addAndGet(new TestDecimal(2).setRaw(-2), result).getRaw());
+        cell.setRaw(100);
+        assertEquals(NaN, cell.divAndGet(new TestDecimal(2), RoundingMode.DOWN, result).getRaw());
+        assertEquals(NaN, cell.getRaw());
+        cell.setRaw(1);
+        assertEquals(NaN, cell.addAndGet(new TestDecimal(3).setRaw(1), RoundingMode.UNNECESSARY, result).getRaw());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testScale() throws Exception {
+        new AtomicDecimal<>(new TestDecimal(2)).get(new TestDecimal(3));
+    }
+
+    @Test
+    public void testConcurrent() throws Exception {
+        final AtomicDecimal<TestDecimal> cell = new AtomicDecimal<>(new TestDecimal(2));
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    TestDecimal fill = new TestDecimal(4).setRaw(101); // 0.0101 rounded up to 0.02
+                    TestDecimal target = new TestDecimal(2);
+                    for (int j = 0; j < 100000; j++) {
+                        cell.addAndGet(fill, RoundingMode.UP, target);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(threads.length * 100000 * 2, cell.getRaw());
+    }
+}
@@ -28,6 +28,7 @@ import org.junit.Test;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.math.RoundingMode;
+import java.util.Random;
 
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertEquals;
@@ -309,6 +310,79 @@ public class BaseDecimalTest {
         assertThat(BaseDecimal.round(0, -Long.MAX_VALUE / 2, Long.MAX_VALUE - 1, RoundingMode.HALF_UP), is(-1L));
         assertThat(BaseDecimal.round(0, -Long.MAX_VALUE / 2, Long.MAX_VALUE - 1, RoundingMode.HALF_EVEN), is(0L));
         assertThat(BaseDecimal.round(-1, -Long.MAX_VALUE / 2, Long.MAX_VALUE - 1, RoundingMode.HALF_EVEN), is(-2L));
+
+        // odd denominators
+        assertThat(BaseDecimal.round(251, 1, 3, RoundingMode.HALF_UP), is(251L));
+        assertThat(BaseDecimal.round(251, 2, 3, RoundingMode.HALF_DOWN), is(252L));
+        assertThat(BaseDecimal.round(-251, -1, 3, RoundingMode.HALF_EVEN), is(-251L));
+        assertThat(BaseDecimal.round(-250, -2, 3, RoundingMode.HALF_EVEN), is(-251L));
+        assertThat(BaseDecimal.round(0, Long.MAX_VALUE / 2, Long.MAX_VALUE, RoundingMode.HALF_UP), is(0L));
+        assertThat(BaseDecimal.round(0, Long.MAX_VALUE / 2 + 1, Long.MAX_VALUE, RoundingMode.HALF_DOWN), is(1L));
+    }
+
+    @Test
+    public void testDiv128() throws Exception {
+        Random random = new Random(1);
+        for (int i = 0; i < 100000; i++) {
+            long d = random.nextLong() >>> random.nextInt(64);
+            if (d == 0) {
+                continue;
+            }
+            long hi = Long.remainderUnsigned(random.nextLong() >>> random.nextInt(64), d); // hi < d
+            long lo = random.nextLong();
+            BigInteger n = unsigned(hi).shiftLeft(64).or(unsigned(lo));
+            BigInteger[] expected = n.divideAndRemainder(unsigned(d));
+            long q = BaseDecimal.div_128_64(hi, lo, d);
+            assertEquals(expected[0], unsigned(q));
+            assertEquals(expected[1], unsigned(lo - q * d));
+        }
+    }
+
+    @Test
+    public void testDivRound127() throws Exception {
+        Random random = new Random(1);
+        for (int i = 0; i < 100000; i++) {
+            BigInteger n = new BigInteger(random.nextInt(128), random);
+            if (random.nextBoolean()) {
+                n = n.negate();
+            }
+            long d = (random.nextLong() >>> 1 >>> random.nextInt(63)) + 1;
+            int scale = random.nextInt(37) - 18;
+            if (i % 10 == 0 && scale >= 0) {
+                // around halves
+                BigInteger divisor = BigInteger.valueOf(d).multiply(BigInteger.TEN.pow(scale));
+                n = divisor.multiply(BigInteger.valueOf(random.nextInt(1000) - 500)).add(divisor.shiftRight(1))
+                        .add(BigInteger.valueOf(random.nextInt(3) - 1));
+            }
+            if (n.bitLength() > 127) {
+                continue;
+            }
+            for (RoundingMode mode : RoundingMode.values()) {
+                assertEquals(n + " / " + d + "e" + scale + " " + mode, expectedDivRound(n, d, scale, mode),
+                        BaseDecimal.divRound_127(n.shiftRight(64).longValue(), n.longValue(), d, scale, mode));
+            }
+        }
+
+        long min = Long.MIN_VALUE;
+        assertEquals(NaN, BaseDecimal.divRound_127(min, 0, 1, 18, RoundingMode.DOWN)); // -2^127 / 10^18 overflows
+        assertEquals(-19, BaseDecimal.divRound_127(min, 0, Long.MAX_VALUE, 18, RoundingMode.UP)); // -18.4
+        assertEquals(Long.MAX_VALUE, BaseDecimal.divRound_127(0, Long.MAX_VALUE, 1, 0, RoundingMode.UP));
+        assertEquals(NaN, BaseDecimal.divRound_127(0, Long.MIN_VALUE, 1, 0, RoundingMode.UP)); // 2^63 doesn't
+        assertEquals(NaN, BaseDecimal.divRound_127(1L << 62, 0, 1, -1, RoundingMode.UP));
+    }
+
+    private static long expectedDivRound(BigInteger n, long d, int scale, RoundingMode mode) {
+        BigInteger result;
+        try {
+            result = new BigDecimal(n, scale).divide(BigDecimal.valueOf(d), 0, mode).toBigIntegerExact();
+        } catch (ArithmeticException e) {
+            return NaN; // UNNECESSARY
+        }
+        return result.bitLength() < 64 && result.longValue() != NaN ? result.longValue() : NaN;
+    }
+
+    private static BigInteger unsigned(long v) {
+        return BigInteger.valueOf(v).and(BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE));
     }
 
     private void testMulScale(long a, long b, int scale) {
@@ -0,0 +1,188 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import org.junit.Test;
+
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static decimal.AbstractDecimal.NaN;
+
+public class BufferDecimalTest {
+    private static class TestBufferDecimal extends BufferDecimal<TestBufferDecimal> {
+        private final int scale;
+
+        TestBufferDecimal(int scale) {
+            this.scale = scale;
+        }
+
+        @Override
+        protected int getScale() {
+            return scale;
+        }
+    }
+
+    @Test
+    public void testWrap() throws Exception {
+        byte[] array = new byte[20];
+        TestBufferDecimal decimal = new TestBufferDecimal(2).wrap(array, 3);
+        decimal.setRaw(0x0102030405060708L);
+        assertEquals(8, array[3]);
+        assertEquals(1, array[10]);
+        assertEquals(0x0102030405060708L, decimal.getRaw());
+        assertEquals(0x0102030405060708L, ByteBuffer.wrap(array).order(ByteOrder.LITTLE_ENDIAN).getLong(3));
+        assertEquals(3, decimal.getOffset());
+
+        for (ByteBuffer buffer : new ByteBuffer[] {ByteBuffer.allocate(16), ByteBuffer.allocateDirect(16),
+                ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN)}) {
+            decimal.wrap(buffer, 8).setRaw(-12345);
+            assertEquals(-12345, buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN).getLong(8));
+            assertEquals("-123.45", decimal.toString());
+            assertEquals(0, buffer.position());
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testWrapOutOfBounds() throws Exception {
+        new TestBufferDecimal(2).wrap(new byte[10], 3);
+    }
+
+    @Test
+    public void testInPlace() throws Exception {
+        ByteBuffer message = ByteBuffer.allocate(24);
+        TestBufferDecimal price = new TestBufferDecimal(8).wrap(message, 0);
+        TestBufferDecimal quantity = new TestBufferDecimal(2).wrap(message, 8);
+        TestBufferDecimal notional = new TestBufferDecimal(2).wrap(message, 16);
+        price.parse("1.23456789");
+        quantity.parse("100");
+        notional.set(quantity).mul(price, RoundingMode.HALF_UP);
+        assertEquals("123.46", notional.toString());
+        assertEquals(12346, notional.wrap(message.array(), 16).getRaw());
+        assertEquals(123, notional.toLong(RoundingMode.DOWN));
+        assertEquals(12346, notional.getRaw());
+    }
+
+    @Test
+    public void testMemoryOrdering() throws Exception {
+        byte[] array = new byte[24];
+        TestBufferDecimal decimal = new TestBufferDecimal(2).wrap(array, 8);
+        decimal.setRawRelease(12345);
+        assertEquals(12345, decimal.getRaw());
+        assertEquals(12345, decimal.getRawAcquire());
+        decimal.setRawOpaque(-1);
+        assertEquals(-1, decimal.getRawVolatile());
+        decimal.setRawVolatile(2);
+        assertEquals(2, decimal.getRawOpaque());
+        assertEquals(2, array[8]);
+
+        for (ByteBuffer buffer : new ByteBuffer[] {ByteBuffer.allocate(16), ByteBuffer.allocateDirect(16),
+                ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN)}) {
+            decimal.wrap(buffer, 8).setRawRelease(-12345);
+            assertEquals(-12345, buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN).getLong(8));
+            assertEquals(-12345, decimal.getRawAcquire());
+            assertEquals(false, decimal.compareAndSetRaw(1, 2));
+            assertEquals(true, decimal.compareAndSetRaw(-12345, 3));
+            assertEquals(3, decimal.getRaw());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMisalignedMemoryOrdering() throws Exception {
+        new TestBufferDecimal(2).wrap(new byte[20], 3).getRawAcquire();
+    }
+
+    @Test
+    public void testSameAsHeap() throws Exception {
+        Random random = new Random(42);
+        byte[] array = new byte[24];
+        ByteBuffer buffer = ByteBuffer.allocateDirect(24);
+        for (int i = 0; i < 100000; i++) {
+            int scale1 = random.nextInt(10);
+            int scale2 = random.nextInt(10);
+            long raw1 = random.nextLong() >> random.nextInt(64);
+            long raw2 = random.nextLong() >> random.nextInt(64);
+            RoundingMode roundingMode = RoundingMode.values()[random.nextInt(RoundingMode.values().length - 1)];
+
+            TestDecimal heap = new TestDecimal(scale1).setRaw(raw1);
+            TestDecimal heapOther = new TestDecimal(scale2).setRaw(raw2);
+            TestBufferDecimal flyweight = i % 2 == 0 ? new TestBufferDecimal(scale1).wrap(array, 5) :
+                    new TestBufferDecimal(scale1).wrap(buffer, 3);
+            TestBufferDecimal flyweightOther = new TestBufferDecimal(scale2).wrap(buffer, 13).setRaw(raw2);
+            flyweight.setRaw(raw1);
+
+            switch (i % 8) {
+                case 0:
+                    heap.set(heapOther, roundingMode);
+                    flyweight.set(flyweightOther, roundingMode);
+                    break;
+                case 1:
+                    heap.add(heapOther, roundingMode);
+                    flyweight.add(flyweightOther, roundingMode);
+                    break;
+                case 2:
+                    heap.subtract(heapOther, roundingMode);
+                    flyweight.subtract(flyweightOther, roundingMode);
+                    break;
+                case 3:
+                    heap.plus(heapOther, heapOther, roundingMode);
+                    flyweight.plus(flyweightOther, flyweightOther, roundingMode);
+                    break;
+                case 4:
+                    heap.mul(heapOther, roundingMode);
+                    flyweight.mul(flyweightOther, roundingMode);
+                    break;
+                case 5:
+                    heap.div(heapOther, roundingMode);
+                    flyweight.div(flyweightOther, roundingMode);
+                    break;
+                case 6:
+                    heap.fromLong(raw2, scale2 - 9, roundingMode);
+                    flyweight.fromLong(raw2, scale2 - 9, roundingMode);
+                    break;
+                default:
+                    if (!heap.isNaN()) {
+                        assertEquals(heap.toLong(roundingMode), flyweight.toLong(roundingMode));
+                    }
+            }
+            assertEquals(i + " " + heap + " " + flyweight, heap.getRaw(), flyweight.getRaw());
+            assertEquals(raw2, flyweightOther.getRaw());
+        }
+    }
+
+    @Test
+    public void testEquals() throws Exception {
+        TestBufferDecimal first = new TestBufferDecimal(2).wrap(new byte[8], 0).setRaw(5);
+        TestBufferDecimal second = new TestBufferDecimal(2).wrap(new byte[16], 8).setRaw(5);
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+        assertEquals(first, first.clone());
+        assertNotEquals(first, second.setRaw(NaN));
+        assertNotEquals(new TestDecimal(2).setRaw(5), first);
+    }
+}
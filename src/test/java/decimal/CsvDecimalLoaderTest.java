@@ -0,0 +1,103 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static decimal.AbstractDecimal.NaN;
+
+public class CsvDecimalLoaderTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final CsvDecimalLoader loader = new CsvDecimalLoader(',', 1, new int[] {2, 1},
+            new AbstractDecimal<?>[] {new TestDecimal(2), new TestDecimal(8)}, RoundingMode.HALF_UP);
+
+    @Test
+    public void testLoad() throws Exception {
+        File file = write("symbol,price,quantity\n" +
+                "A,1.5,100\n" +
+                "B, 1.5E-4 ,\"200.5\"\r\n" +
+                "\n" +
+                "C,NaN,1.005\n" +
+                "D,rubbish,1\n" +
+                "E,2\n" +
+                "F,3,4,5,6");
+
+        CsvDecimalLoader.Result result = loader.load(file.toPath());
+        assertEquals(6, result.rows());
+        assertArrayEquals(new long[] {10000, 20050, 101, 100, NaN, 400}, result.column(0));
+        assertArrayEquals(new long[] {150000000, 15000, NaN, NaN, 200000000, 300000000}, result.column(1));
+        assertArrayEquals(new int[] {3, 4}, result.malformedRows());
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        assertEquals(0, loader.load(write("").toPath()).rows());
+        assertEquals(0, loader.load(write("header only").toPath()).rows());
+        assertEquals(0, loader.load(write("header\n").toPath()).rows());
+    }
+
+    @Test
+    public void testParallelChunks() throws Exception {
+        Random random = new Random(42);
+        int rows = 100000;
+        long[] prices = new long[rows];
+        long[] quantities = new long[rows];
+        StringBuilder sb = new StringBuilder("price,quantity\n");
+        for (int i = 0; i < rows; i++) {
+            prices[i] = random.nextInt() * 1000L;
+            quantities[i] = random.nextInt(1000000);
+            sb.append(new TestDecimal(8).setRaw(prices[i])).append(',')
+                    .append(new TestDecimal(2).setRaw(quantities[i])).append('\n');
+        }
+        File file = write(sb.toString());
+
+        CsvDecimalLoader chunked = new CsvDecimalLoader(',', 1, new int[] {1, 0},
+                new AbstractDecimal<?>[] {new TestDecimal(2), new TestDecimal(8)}, RoundingMode.UNNECESSARY, 1000);
+        CsvDecimalLoader.Result result = chunked.load(file.toPath(), new ForkJoinPool(4));
+        assertEquals(rows, result.rows());
+        assertArrayEquals(quantities, result.column(0));
+        assertArrayEquals(prices, result.column(1));
+        assertEquals(0, result.malformedRows().length);
+    }
+
+    private File write(String content) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.US_ASCII));
+        return file;
+    }
+}
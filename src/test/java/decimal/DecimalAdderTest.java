@@ -0,0 +1,116 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import org.junit.Test;
+
+import java.math.RoundingMode;
+
+import static org.junit.Assert.assertEquals;
+import static decimal.AbstractDecimal.NaN;
+
+public class DecimalAdderTest {
+    private final TestDecimal result = new TestDecimal(2);
+
+    @Test
+    public void testSum() throws Exception {
+        DecimalAdder<TestDecimal> adder = new DecimalAdder<>(new TestDecimal(2).setRaw(150));
+        adder.add(new TestDecimal(2).setRaw(125));
+        adder.add(new TestDecimal(4).setRaw(250), RoundingMode.HALF_UP);
+        adder.add(new TestDecimal(0).setRaw(-1), RoundingMode.UNNECESSARY);
+        assertEquals(178, adder.sum(result).getRaw());
+        assertEquals("1.78", adder.toString());
+
+        assertEquals(178, adder.sumThenReset(result).getRaw());
+        assertEquals(0, adder.sumRaw());
+    }
+
+    @Test
+    public void testNaN() throws Exception {
+        DecimalAdder<TestDecimal> adder = new DecimalAdder<>(new TestDecimal(2));
+        adder.add(new TestDecimal(3).setRaw(1), RoundingMode.UNNECESSARY);
+        assertEquals(NaN, adder.sumRaw());
+        adder.reset();
+        adder.addRaw(1);
+        adder.add(new TestDecimal(2).setRaw(NaN));
+        assertEquals(NaN, adder.sum(result).getRaw());
+    }
+
+    @Test
+    public void testOverflow() throws Exception {
+        DecimalAdder<TestDecimal> adder = new DecimalAdder<>(new TestDecimal(2), 1);
+        adder.addRaw(Long.MAX_VALUE - 10);
+        adder.addRaw(20); // overflows the cell
+        assertEquals(NaN, adder.sumRaw());
+        adder.addRaw(-15);
+        assertEquals(Long.MAX_VALUE - 5, adder.sumRaw());
+        adder.addRaw(-Long.MAX_VALUE);
+        adder.addRaw(-Long.MAX_VALUE); // overflows the cell back
+        assertEquals(NaN, adder.sumRaw());
+        adder.addRaw(10);
+        assertEquals(-Long.MAX_VALUE + 5, adder.sumRaw());
+        adder.addRaw(-6);
+        assertEquals(NaN, adder.sumRaw()); // Long.MIN_VALUE is NaN
+
+        adder.reset();
+        for (int i = 0; i < 4; i++) {
+            adder.addRaw(Long.MAX_VALUE);
+        }
+        for (int i = 0; i < 4; i++) {
+            adder.addRaw(-Long.MAX_VALUE);
+        }
+        assertEquals(0, adder.sumRaw());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testScale() throws Exception {
+        new DecimalAdder<>(new TestDecimal(2)).sum(new TestDecimal(3));
+    }
+
+    @Test
+    public void testConcurrent() throws Exception {
+        final DecimalAdder<TestDecimal> adder = new DecimalAdder<>(new TestDecimal(2), 4);
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            final long big = i % 2 == 0 ? Long.MAX_VALUE / 2 : -Long.MAX_VALUE / 2;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    TestDecimal fill = new TestDecimal(4).setRaw(101); // 0.0101 rounded up to 0.02
+                    for (int j = 0; j < 100000; j++) {
+                        adder.add(fill, RoundingMode.UP);
+                        if (j % 1000 == 0) {
+                            adder.addRaw(big); // cells overflow, the total does not
+                        }
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(threads.length * 100000 * 2, adder.sumRaw());
+    }
+}
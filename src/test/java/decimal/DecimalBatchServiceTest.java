@@ -0,0 +1,233 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import decimal.DecimalBatchService.Formula;
+import decimal.sample.Price;
+import decimal.sample.Quantity;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+import static decimal.AbstractDecimal.NaN;
+
+public class DecimalBatchServiceTest {
+    @Test
+    public void testFormulas() throws Exception {
+        Random random = new Random(1);
+        for (Formula formula : Formula.values()) {
+            for (int i = 0; i < 200; i++) {
+                int aScale = random.nextInt(10);
+                int bScale = random.nextInt(10);
+                int cScale = random.nextInt(10);
+                int resultScale = random.nextInt(10);
+                for (RoundingMode mode : RoundingMode.values()) {
+                    DecimalBatchService service = formula.arguments == 2 ?
+                            new DecimalBatchService(formula, aScale, bScale, resultScale, mode) :
+                            new DecimalBatchService(formula, aScale, bScale, cScale, resultScale, mode);
+                    for (int j = 0; j < 20; j++) {
+                        long a = random.nextLong() >> random.nextInt(64);
+                        long b = random.nextLong() >> random.nextInt(64);
+                        long c = random.nextLong() >> random.nextInt(64);
+                        String message = formula + " " + a + "e-" + aScale + " " + b + "e-" + bScale + " " + c +
+                                "e-" + cScale + " " + resultScale + " " + mode;
+                        if (formula.arguments == 2) {
+                            assertEquals(message, expected(formula, a, aScale, b, bScale, 0, 0, resultScale, mode),
+                                    service.calculateRaw(a, b));
+                        } else {
+                            assertEquals(message, expected(formula, a, aScale, b, bScale, c, cScale, resultScale, mode),
+                                    service.calculateRaw(a, b, c));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSingleRounding() throws Exception {
+        // 1 * 1 / 3 = 0.33 -> 0, not 1 * 0.33 -> 1 * 0 or 0.5 -> 1
+        assertEquals(0, new DecimalBatchService(Formula.MUL_DIV, 0, 0, 0, 0, RoundingMode.HALF_UP).calculateRaw(1, 1, 3));
+        // 0.149 / 0.5 = 0.298 -> 0.3, not 0.1 / 0.5 = 0.2 (a rounded to the result scale first)
+        assertEquals(3, new DecimalBatchService(Formula.DIV, 3, 1, 1, RoundingMode.HALF_UP).calculateRaw(149, 5));
+        // 0.15 * 0.15 * 0.2 = 0.0045 -> 0.005, not 0.0225 -> 0.023 * 0.2 = 0.0046 -> 0.005 (same) or 0.02 * 0.2 = 0.004
+        assertEquals(5, new DecimalBatchService(Formula.MARGIN, 2, 2, 1, 3, RoundingMode.HALF_UP).calculateRaw(15, 15, 2));
+        assertEquals(4, new DecimalBatchService(Formula.MARGIN, 2, 2, 1, 3, RoundingMode.HALF_EVEN).calculateRaw(15, 15, 2));
+    }
+
+    @Test
+    public void testNaN() throws Exception {
+        DecimalBatchService div = new DecimalBatchService(Formula.DIV, 8, 2, 8, RoundingMode.DOWN);
+        assertEquals(NaN, div.calculateRaw(100, 0));
+        assertEquals(NaN, div.calculateRaw(NaN, 100));
+        assertEquals(NaN, div.calculateRaw(100, NaN));
+        assertEquals(50, div.calculateRaw(100, 200));
+
+        DecimalBatchService mulDiv = new DecimalBatchService(Formula.MUL_DIV, 8, 2, 4, 2, RoundingMode.DOWN);
+        assertEquals(NaN, mulDiv.calculateRaw(100, 100, 0));
+        assertEquals(NaN, mulDiv.calculateRaw(Long.MAX_VALUE, Long.MAX_VALUE, 1)); // overflow
+        // intermediate product beyond long: (2^62 * 10^-8) * (2^62 * 10^-2) / (2^62 * 10^-4) = 2^62 * 10^-6
+        assertEquals((1L << 62) / 10000, mulDiv.calculateRaw(1L << 62, 1L << 62, 1L << 62));
+
+        DecimalBatchService margin = new DecimalBatchService(Formula.MARGIN, 9, 9, 9, 0, RoundingMode.DOWN);
+        assertEquals(NaN, margin.calculateRaw(1, NaN, 1));
+        // no 2 of the arguments have a product fitting long: 2^40 * 2^40 * 2^40 * 10^-27
+        assertEquals(1329227995, margin.calculateRaw(1L << 40, 1L << 40, 1L << 40));
+        assertEquals(NaN, margin.calculateRaw(Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testColumns() throws Exception {
+        Random random = new Random(1);
+        long[] a = new long[100];
+        long[] b = new long[100];
+        long[] c = new long[100];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = random.nextInt();
+            b[i] = random.nextInt(100000) - 50000;
+            c[i] = random.nextInt(100000) - 50000;
+        }
+        long[] results = new long[100];
+        long[] expected = new long[100];
+        for (Formula formula : Formula.values()) {
+            DecimalBatchService service = formula.arguments == 2 ?
+                    new DecimalBatchService(formula, 8, 2, 4, RoundingMode.HALF_UP) :
+                    new DecimalBatchService(formula, 8, 2, 4, 4, RoundingMode.HALF_UP);
+            for (int i = 0; i < a.length; i++) {
+                expected[i] = formula.arguments == 2 ?
+                        service.calculateRaw(a[i], b[i]) : service.calculateRaw(a[i], b[i], c[i]);
+            }
+            if (formula.arguments == 2) {
+                service.calculate(a, b, results, 100);
+            } else {
+                service.calculate(a, b, c, results, 100);
+            }
+            assertArrayEquals(expected, results);
+        }
+    }
+
+    @Test
+    public void testDecimals() throws Exception {
+        DecimalBatchService service = new DecimalBatchService(Formula.MUL, 8, 2, 2, RoundingMode.HALF_UP);
+        assertEquals(Quantity.create("18.52"),
+                service.calculate(Price.create("1.23456789"), Quantity.create("15"), new Quantity()));
+        try {
+            service.calculate(new Price(), new Price(), new Quantity());
+            fail("Exception expected");
+        } catch (IllegalArgumentException e) {
+        }
+
+        try {
+            new DecimalBatchService(Formula.MUL_DIV, 8, 2, 2, RoundingMode.HALF_UP);
+            fail("Exception expected");
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            service.calculateRaw(1, 2, 3);
+            fail("Exception expected");
+        } catch (IllegalStateException e) {
+        }
+    }
+
+    @Test
+    public void testConcurrent() throws Exception {
+        // a single instance shared by many threads
+        final DecimalBatchService service = new DecimalBatchService(Formula.MUL, 8, 2, 2, RoundingMode.HALF_UP);
+        final boolean[] failed = new boolean[1];
+        Thread[] threads = new Thread[32];
+        for (int i = 0; i < threads.length; i++) {
+            final long price = 100000000L * (i + 1); // i + 1
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    long[] prices = new long[100];
+                    long[] quantities = new long[100];
+                    long[] results = new long[100];
+                    for (int j = 0; j < 100; j++) {
+                        prices[j] = price;
+                        quantities[j] = j;
+                    }
+                    for (int k = 0; k < 100; k++) {
+                        service.calculate(prices, quantities, results, 100);
+                        for (int j = 0; j < 100; j++) {
+                            if (results[j] != price / 100000000 * j) {
+                                failed[0] = true;
+                            }
+                        }
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertFalse(failed[0]);
+    }
+
+    private static long expected(Formula formula, long a, int aScale, long b, int bScale, long c, int cScale,
+                                 int resultScale, RoundingMode mode) {
+        if (a == NaN || b == NaN || c == NaN) {
+            return NaN;
+        }
+        BigDecimal x = BigDecimal.valueOf(a, aScale);
+        BigDecimal y = BigDecimal.valueOf(b, bScale);
+        BigDecimal z = BigDecimal.valueOf(c, cScale);
+        BigDecimal result;
+        try {
+            switch (formula) {
+                case ADD:
+                    result = x.add(y).setScale(resultScale, mode);
+                    break;
+                case SUBTRACT:
+                    result = x.subtract(y).setScale(resultScale, mode);
+                    break;
+                case MUL:
+                    result = x.multiply(y).setScale(resultScale, mode);
+                    break;
+                case DIV:
+                    result = b == 0 ? null : x.divide(y, resultScale, mode);
+                    break;
+                case MUL_DIV:
+                    result = c == 0 ? null : x.multiply(y).divide(z, resultScale, mode);
+                    break;
+                default:
+                    result = x.multiply(y).multiply(z).setScale(resultScale, mode);
+                    break;
+            }
+        } catch (ArithmeticException e) {
+            return NaN; // UNNECESSARY
+        }
+        if (result == null || result.unscaledValue().bitLength() >= 64 || result.unscaledValue().longValue() == NaN) {
+            return NaN;
+        }
+        return result.unscaledValue().longValue();
+    }
+}
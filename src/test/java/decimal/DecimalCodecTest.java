@@ -0,0 +1,168 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static decimal.AbstractDecimal.NaN;
+
+public class DecimalCodecTest {
+    @Test
+    public void testVarLong() throws Exception {
+        assertEquals(1, DecimalCodec.varLongSize(0));
+        assertEquals(1, DecimalCodec.varLongSize(63));
+        assertEquals(1, DecimalCodec.varLongSize(-64));
+        assertEquals(2, DecimalCodec.varLongSize(64));
+        assertEquals(2, DecimalCodec.varLongSize(-8192));
+        assertEquals(3, DecimalCodec.varLongSize(8192));
+        assertEquals(10, DecimalCodec.varLongSize(NaN));
+        assertEquals(10, DecimalCodec.varLongSize(Long.MAX_VALUE));
+
+        Random random = new Random(42);
+        long[] raw = new long[10000];
+        for (int i = 0; i < raw.length; i++) {
+            raw[i] = random.nextLong() >> random.nextInt(64);
+        }
+        raw[0] = NaN;
+        raw[1] = Long.MAX_VALUE;
+        raw[2] = 0;
+        raw[3] = -1;
+
+        int size = DecimalCodec.varLongsSize(raw, 0, raw.length);
+        byte[] bytes = new byte[size + 1];
+        assertEquals(size + 1, DecimalCodec.putVarLongs(raw, 0, raw.length, bytes, 1));
+        long[] result = new long[raw.length];
+        assertEquals(size + 1, DecimalCodec.getVarLongs(bytes, 1, result, 0, raw.length));
+        assertArrayEquals(raw, result);
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+        DecimalCodec.putVarLongs(raw, 0, raw.length, buffer);
+        assertEquals(size, buffer.position());
+        buffer.flip();
+        DecimalCodec.getVarLongs(buffer, result, 0, raw.length);
+        assertEquals(size, buffer.position());
+        assertArrayEquals(raw, result);
+
+        int offset = 0;
+        for (long r : raw) {
+            assertEquals(r, DecimalCodec.getVarLong(bytes, offset + 1));
+            offset = DecimalCodec.putVarLong(r, bytes, offset);
+        }
+        assertEquals(size, offset);
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(stream);
+        for (long r : raw) {
+            DecimalCodec.putVarLong(r, out);
+        }
+        assertArrayEquals(Arrays.copyOf(bytes, size), stream.toByteArray());
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(stream.toByteArray()));
+        for (long r : raw) {
+            assertEquals(r, DecimalCodec.getVarLong(in));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonCanonicalVarLong() throws Exception {
+        DecimalCodec.getVarLong(new byte[] {(byte) 0x81, 0}, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonCanonicalStreamVarLong() throws Exception {
+        DecimalCodec.getVarLong(new DataInputStream(new ByteArrayInputStream(new byte[] {(byte) 0x81, 0})));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooLongVarLong() throws Exception {
+        byte[] bytes = new byte[11];
+        Arrays.fill(bytes, (byte) 0xFF);
+        DecimalCodec.getVarLong(ByteBuffer.wrap(bytes));
+    }
+
+    @Test
+    public void testFixed() throws Exception {
+        byte[] bytes = new byte[13];
+        assertEquals(4, DecimalCodec.putInt(-123456, bytes, 0));
+        assertEquals(12, DecimalCodec.putLong(NaN, bytes, 4));
+        assertEquals(-123456, DecimalCodec.getInt(bytes, 0));
+        assertEquals(NaN, DecimalCodec.getLong(bytes, 4));
+        assertEquals(-123456, ByteBuffer.wrap(bytes).getInt());
+        assertEquals(NaN, ByteBuffer.wrap(bytes, 4, 8).getLong());
+
+        ByteBuffer buffer = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        DecimalCodec.putInts(new long[] {Integer.MAX_VALUE, NaN, 5}, 0, 3, buffer);
+        buffer.flip();
+        long[] result = new long[3];
+        DecimalCodec.getInts(buffer, result, 0, 3);
+        assertArrayEquals(new long[] {Integer.MAX_VALUE, NaN, 5}, result);
+
+        assertEquals(13, DecimalCodec.putInts(new long[] {0, -7, NaN, 5}, 1, 3, bytes, 1));
+        assertEquals(NaN, DecimalCodec.getInt(bytes, 5));
+        result = new long[4];
+        assertEquals(13, DecimalCodec.getInts(bytes, 1, result, 1, 3));
+        assertArrayEquals(new long[] {0, -7, NaN, 5}, result);
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void testIntOverflow() throws Exception {
+        DecimalCodec.putInt(Integer.MIN_VALUE, new byte[4], 0);
+    }
+
+    @Test
+    public void testScaleTagged() throws Exception {
+        TestDecimal price = new TestDecimal(8).setRaw(123456789);
+        byte[] bytes = new byte[DecimalCodec.size(price)];
+        assertEquals(5, bytes.length);
+        assertEquals(bytes.length, DecimalCodec.put(price, bytes, 0));
+        TestDecimal target = new TestDecimal(8);
+        assertEquals(5, DecimalCodec.get(bytes, 0, target, RoundingMode.UNNECESSARY));
+        assertEquals(123456789, target.getRaw());
+        target = new TestDecimal(2);
+        assertEquals(5, DecimalCodec.get(bytes, 0, target, RoundingMode.HALF_UP)); // not the size of the target
+        assertEquals(123, target.getRaw());
+        target = new TestDecimal(9);
+        assertEquals(5, DecimalCodec.get(bytes, 0, target, RoundingMode.UNNECESSARY));
+        assertEquals(1234567890, target.getRaw());
+
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        DecimalCodec.put(price, buffer);
+        DecimalCodec.put(new TestDecimal(2).setRaw(NaN), buffer);
+        buffer.flip();
+        assertEquals(124, DecimalCodec.get(buffer, new TestDecimal(2), RoundingMode.UP).getRaw());
+        assertEquals(NaN, DecimalCodec.get(buffer, new TestDecimal(8), RoundingMode.UP).getRaw());
+        assertEquals(0, buffer.remaining());
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static decimal.AbstractDecimal.NaN;
+
+public class DecimalColumnFileTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWriteAndRead() throws Exception {
+        Random random = new Random(42);
+        int rows = 1050;
+        long[][] columns = new long[2][rows];
+        for (int i = 0; i < rows; i++) {
+            columns[0][i] = 10000000000L + i * 1000000L; // increasing price, scale 8
+            columns[1][i] = i % 17 == 0 ? NaN : random.nextInt(1000); // quantity, scale 2
+        }
+
+        Path file = folder.newFile().toPath();
+        try (DecimalColumnWriter writer = new DecimalColumnWriter(file, new int[] {8, 2}, 100)) {
+            writer.addRow(new long[] {columns[0][0], columns[1][0]});
+            writer.addRows(columns, 1, rows - 1);
+            assertEquals(rows, writer.getRowCount());
+        }
+
+        try (DecimalColumnReader reader = new DecimalColumnReader(file)) {
+            assertEquals(2, reader.getColumnCount());
+            assertEquals(8, reader.getScale(0));
+            assertEquals(2, reader.getScale(1));
+            assertEquals(rows, reader.getRowCount());
+            assertEquals(11, reader.getBlockCount());
+            assertEquals(50, reader.getCount(10));
+
+            long[][] result = new long[2][rows];
+            for (int block = 0; block < reader.getBlockCount(); block++) {
+                for (int column = 0; column < 2; column++) {
+                    int count = reader.readBlock(block, column, result[column], block * 100);
+                    assertEquals(reader.getCount(block), count);
+                    assertEquals(DecimalColumns.min(columns[column], block * 100, count), reader.getMin(block, column));
+                    assertEquals(DecimalColumns.max(columns[column], block * 100, count), reader.getMax(block, column));
+                    assertEquals(DecimalColumns.nanCount(columns[column], block * 100, count),
+                            reader.getNaNCount(block, column));
+                }
+            }
+            assertArrayEquals(columns[0], result[0]);
+            assertArrayEquals(columns[1], result[1]);
+
+            // price > 101.5
+            assertFalse(reader.mayContain(0, 0, 10150000000L, Long.MAX_VALUE));
+            assertTrue(reader.mayContain(5, 0, 10150000000L, Long.MAX_VALUE));
+            assertEquals(rows - 151, reader.countInRange(0, 10150000001L, Long.MAX_VALUE));
+            assertEquals(DecimalColumns.countInRange(columns[1], 0, rows, 100, 200), reader.countInRange(1, 100, 200));
+            assertEquals(rows - DecimalColumns.nanCount(columns[1], 0, rows), reader.countInRange(1, NaN, Long.MAX_VALUE));
+
+            try {
+                reader.readBlock(0, 2, result[0], 0); // would read the next block
+                fail("Exception expected");
+            } catch (IndexOutOfBoundsException e) {
+                assertEquals("Column: 2", e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        Path file = folder.newFile().toPath();
+        new DecimalColumnWriter(file, new int[] {4}).close();
+        try (DecimalColumnReader reader = new DecimalColumnReader(file)) {
+            assertEquals(0, reader.getRowCount());
+            assertEquals(0, reader.getBlockCount());
+            assertEquals(0, reader.countInRange(0, NaN, Long.MAX_VALUE));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testCorrupted() throws Exception {
+        Path file = folder.newFile().toPath();
+        Files.write(file, new byte[100]);
+        new DecimalColumnReader(file);
+    }
+}
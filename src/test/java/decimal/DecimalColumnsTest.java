@@ -0,0 +1,109 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static decimal.AbstractDecimal.NaN;
+
+public class DecimalColumnsTest {
+    @Test
+    public void testToDouble() throws Exception {
+        Random random = new Random(42);
+        for (int scale = 0; scale <= 9; scale++) {
+            long[] raw = new long[10000];
+            for (int i = 0; i < raw.length; i++) {
+                raw[i] = random.nextLong() >> random.nextInt(64);
+            }
+            raw[0] = NaN;
+            raw[1] = Long.MAX_VALUE;
+            raw[2] = -Long.MAX_VALUE;
+            raw[3] = (1L << 53) + 1;
+
+            double[] result = new double[raw.length + 1];
+            DecimalColumns.toDouble(raw, 0, result, 1, raw.length, scale);
+            assertTrue(Double.isNaN(result[1]));
+            for (int i = 1; i < raw.length; i++) {
+                double expected = BigDecimal.valueOf(raw[i], scale).doubleValue();
+                assertEquals(raw[i] + " " + scale, expected, result[i + 1], 0.0);
+                assertEquals(expected, new TestDecimal(scale).setRaw(raw[i]).toDouble(), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testFromDouble() throws Exception {
+        double[] values = {1.15, -1.15, 0.5, Double.NaN, 1e300, 123456.789};
+        long[] raw = new long[values.length];
+        DecimalColumns.fromDouble(values, 0, raw, 0, values.length, 2, RoundingMode.HALF_EVEN);
+        assertEquals(115, raw[0]);
+        assertEquals(-115, raw[1]);
+        assertEquals(50, raw[2]);
+        assertEquals(NaN, raw[3]);
+        assertEquals(NaN, raw[4]);
+        assertEquals(12345679, raw[5]);
+    }
+
+    @Test
+    public void testStatistics() throws Exception {
+        long[] raw = {7, NaN, -3, 12, NaN, 5, Long.MAX_VALUE};
+        assertEquals(-3, DecimalColumns.min(raw, 0, raw.length));
+        assertEquals(Long.MAX_VALUE, DecimalColumns.max(raw, 0, raw.length));
+        assertEquals(7, DecimalColumns.max(raw, 0, 2));
+        assertEquals(NaN, DecimalColumns.min(raw, 1, 1));
+        assertEquals(NaN, DecimalColumns.max(raw, 1, 1));
+        assertEquals(NaN, DecimalColumns.min(raw, 0, 0));
+        assertEquals(2, DecimalColumns.nanCount(raw, 0, raw.length));
+        assertEquals(0, DecimalColumns.nanCount(raw, 2, 2));
+
+        assertEquals(3, DecimalColumns.countInRange(raw, 0, raw.length, -3, 7));
+        assertEquals(5, DecimalColumns.countInRange(raw, 0, raw.length, NaN, Long.MAX_VALUE));
+        int[] indexes = new int[raw.length + 1];
+        assertEquals(2, DecimalColumns.selectInRange(raw, 1, raw.length - 1, 6, Long.MAX_VALUE, indexes, 1));
+        assertEquals(2, indexes[1]); // 12
+        assertEquals(5, indexes[2]); // Long.MAX_VALUE
+    }
+
+    @Test
+    public void testMemoryOrdering() throws Exception {
+        long[] raws = new long[2];
+        DecimalColumns.setRawRelease(raws, 1, 150);
+        assertEquals(150, DecimalColumns.getRawAcquire(raws, 1));
+        DecimalColumns.setRawOpaque(raws, 0, -1);
+        assertEquals(-1, DecimalColumns.getRawOpaque(raws, 0));
+        assertTrue(DecimalColumns.compareAndSetRaw(raws, 0, -1, NaN));
+        assertEquals(NaN, raws[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIncorrectScale() throws Exception {
+        DecimalColumns.toDouble(new long[1], 0, new double[1], 0, 1, 10);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import decimal.sample.Price;
+import org.junit.Test;
+
+import java.math.RoundingMode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+public class DecimalConstantsTest {
+    @Test
+    public void testValues() throws Exception {
+        DecimalConstants<TestDecimal> constants = new DecimalConstants<>(() -> new TestDecimal(2));
+        assertEquals("0.00", constants.zero().toString());
+        assertEquals("1.00", constants.one().toString());
+        assertEquals("100.00", constants.hundred().toString());
+        assertEquals("10000.00", constants.basisPointDivisor().toString());
+        assertEquals(-Long.MAX_VALUE, constants.minValue().getRaw());
+        assertEquals(Long.MAX_VALUE, constants.maxValue().getRaw());
+        assertTrue(constants.one().isFrozen());
+
+        assertSame(Decimal.MAX_VALUE, Decimal.CONSTANTS.maxValue());
+        assertTrue(Decimal.MIN_VALUE.isFrozen());
+        assertEquals("1.00000000", Price.CONSTANTS.one().toString());
+    }
+
+    @Test
+    public void testArguments() throws Exception {
+        Price one = Price.CONSTANTS.one();
+        Price price = Price.create("12.5").add(one).mul(Price.CONSTANTS.hundred(), RoundingMode.DOWN)
+                .div(Price.CONSTANTS.basisPointDivisor(), RoundingMode.HALF_UP)
+                .subtract(Price.CONSTANTS.zero());
+        assertEquals("0.13500000", price.toString());
+        assertEquals("1.00000000", new Price().plus(Price.CONSTANTS.zero(), one).toString());
+        assertEquals(0, one.compareTo(Price.create("1")));
+        assertEquals(1, one.toLong(RoundingMode.UNNECESSARY));
+        assertEquals(100000000, one.getRaw());
+    }
+
+    @Test
+    public void testFrozen() throws Exception {
+        assumeTrue("Frozen values are checked with assertions", AbstractDecimal.class.desiredAssertionStatus());
+        try {
+            Decimal.MAX_VALUE.add(Decimal.MIN_VALUE);
+            fail();
+        } catch (AssertionError e) {
+            assertEquals("Frozen decimal must not be changed", e.getMessage());
+        }
+        assertEquals(Long.MAX_VALUE, Decimal.MAX_VALUE.getRaw());
+
+        // checked before the accumulator is used
+        Price one = Price.CONSTANTS.one();
+        assertUnchanged(one, () -> one.set(new TestDecimal(9).setRaw(123456789), RoundingMode.DOWN));
+        assertUnchanged(one, () -> one.fromLong(123, 1, RoundingMode.DOWN));
+        assertUnchanged(one, () -> one.mul(Price.CONSTANTS.hundred(), RoundingMode.DOWN));
+        assertUnchanged(one, () -> one.div(Price.CONSTANTS.hundred(), RoundingMode.DOWN));
+        assertUnchanged(one, () -> one.parse("1.5"));
+
+        Decimal copy = Decimal.MAX_VALUE.clone();
+        assertFalse(copy.isFrozen());
+        assertEquals(0, copy.add(Decimal.MIN_VALUE).getRaw());
+    }
+
+    private interface Change {
+        void run() throws Exception;
+    }
+
+    private static void assertUnchanged(AbstractDecimal<?> frozen, Change change) throws Exception {
+        long raw = frozen.getRaw();
+        try {
+            change.run();
+            fail();
+        } catch (AssertionError e) {
+            assertEquals("Frozen decimal must not be changed", e.getMessage());
+            assertEquals(raw, frozen.getRaw());
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import org.junit.Test;
+
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static decimal.AbstractDecimal.NaN;
+
+public class DecimalFormatterTest {
+    private final DecimalFormatter formatter = new DecimalFormatter();
+
+    @Test
+    public void testDefault() throws Exception {
+        for (long raw : new long[] {0, 1, -1, 123, -123, 100, 123456789, Long.MAX_VALUE, -Long.MAX_VALUE, NaN}) {
+            for (int scale = 0; scale <= 9; scale++) {
+                TestDecimal value = new TestDecimal(scale).setRaw(raw);
+                assertEquals(value.toString(), formatter.format(value));
+                assertEquals(value.toString().length(), formatter.length(value));
+            }
+        }
+    }
+
+    @Test
+    public void testFractionDigits() throws Exception {
+        DecimalFormatter stripping = formatter.withMinFractionDigits(0);
+        assertEquals("1.5", stripping.format(quantity(150)));
+        assertEquals("1", stripping.format(quantity(100)));
+        assertEquals("0", stripping.format(quantity(0)));
+        assertEquals("-0.01", stripping.format(quantity(-1)));
+
+        DecimalFormatter two = formatter.withMinFractionDigits(2);
+        assertEquals("1.50", two.format(price(150000000)));
+        assertEquals("1.2345", two.format(price(123450000)));
+        assertEquals("1.00", two.format(new TestDecimal(0).setRaw(1)));
+        assertEquals("1.2000", formatter.withMinFractionDigits(4).format(new TestDecimal(1).setRaw(12)));
+
+        DecimalFormatter rounding = formatter.withMinFractionDigits(0).withMaxFractionDigits(2, RoundingMode.HALF_UP);
+        assertEquals("1.23", rounding.format(price(123456789)));
+        assertEquals("1.24", rounding.format(price(123500000)));
+        assertEquals("-1.24", rounding.format(price(-123500000)));
+        assertEquals("1", rounding.format(price(99999999)));
+        assertEquals("0", rounding.format(price(-1)));
+        assertEquals("1.23", formatter.withMaxFractionDigits(2).format(price(123999999)));
+        assertEquals("1.2", formatter.withMaxFractionDigits(1).format(quantity(123)));
+        assertEquals("NaN", formatter.withMaxFractionDigits(1, RoundingMode.UNNECESSARY).format(quantity(123)));
+        assertEquals("12.3", formatter.withMaxFractionDigits(1, RoundingMode.UNNECESSARY).format(quantity(1230)));
+    }
+
+    @Test
+    public void testGrouping() throws Exception {
+        DecimalFormatter grouping = formatter.withGroupingSeparator(',');
+        assertEquals("1,234,567.00", grouping.format(quantity(123456700)));
+        assertEquals("-1,234,567.00", grouping.format(quantity(-123456700)));
+        assertEquals("234,567.00", grouping.format(quantity(23456700)));
+        assertEquals("999.99", grouping.format(quantity(99999)));
+        assertEquals("0.01", grouping.format(quantity(1)));
+        assertEquals("92,233,720,368,547,758.07", grouping.format(quantity(Long.MAX_VALUE)));
+        assertEquals("1 234,5", formatter.withGroupingSeparator(' ').withDecimalSeparator(',')
+                .format(new TestDecimal(1).setRaw(12345)));
+    }
+
+    @Test
+    public void testWidth() throws Exception {
+        assertEquals("    1.50", formatter.withWidth(8, ' ').format(quantity(150)));
+        assertEquals("   -1.50", formatter.withWidth(8, ' ').format(quantity(-150)));
+        assertEquals("00001.50", formatter.withWidth(8, '0').format(quantity(150)));
+        assertEquals("-0001.50", formatter.withWidth(8, '0').format(quantity(-150)));
+        assertEquals("1.50    ", formatter.withLeftAlignedWidth(8, ' ').format(quantity(150)));
+        assertEquals("-1.50   ", formatter.withLeftAlignedWidth(8, ' ').format(quantity(-150)));
+        assertEquals("1.50", formatter.withWidth(4, ' ').format(quantity(150)));
+        assertEquals("###", formatter.withWidth(3, ' ').format(quantity(150)));
+        assertEquals("  NaN", formatter.withWidth(5, ' ').format(quantity(NaN)));
+        assertEquals("NaN  ", formatter.withLeftAlignedWidth(5, ' ').format(quantity(NaN)));
+        assertEquals("##", formatter.withWidth(2, ' ').format(quantity(NaN)));
+        assertEquals("  1,234.5", formatter.withWidth(9, ' ').withGroupingSeparator(',').withMinFractionDigits(0)
+                .format(quantity(123450)));
+        assertEquals(8, formatter.withWidth(8, ' ').length(quantity(1)));
+    }
+
+    @Test
+    public void testBuffers() throws Exception {
+        DecimalFormatter fixed = formatter.withWidth(6, ' ');
+
+        byte[] bytes = "[--------]".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(6, fixed.format(quantity(-150), bytes, 2));
+        assertEquals("[- -1.50-]", new String(bytes, StandardCharsets.US_ASCII));
+
+        char[] chars = "[--------]".toCharArray();
+        assertEquals(6, fixed.format(quantity(150), chars, 1));
+        assertEquals("[  1.50--]", new String(chars));
+
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        buffer.put((byte) '>');
+        assertEquals(6, fixed.format(quantity(150), buffer));
+        assertEquals(4, formatter.format(quantity(250), buffer));
+        assertEquals(11, buffer.position());
+        assertEquals(">  1.502.50", new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII));
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(16);
+        assertEquals(5, formatter.format(quantity(-1), direct));
+        byte[] read = new byte[5];
+        direct.flip();
+        direct.get(read);
+        assertEquals("-0.01", new String(read, StandardCharsets.US_ASCII));
+
+        StringBuilder sb = new StringBuilder("x=");
+        assertEquals("x=  1.50", fixed.format(quantity(150), sb).toString());
+
+        // heap buffer with an array offset, sign before zero padding, left alignment
+        byte[] backing = "[--------]".getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer slice = ByteBuffer.wrap(backing, 2, 8).slice();
+        assertEquals(7, formatter.withWidth(7, '0').format(quantity(-150), slice));
+        assertEquals("[--001.50]", new String(backing, StandardCharsets.US_ASCII)); // position 7 of the slice
+        assertEquals("x=  1.50-001.50", formatter.withWidth(7, '0').format(quantity(-150), sb).toString());
+        chars = "[--------]".toCharArray();
+        assertEquals(7, formatter.withLeftAlignedWidth(7, '*').format(quantity(-150), chars, 1));
+        assertEquals("[-1.50**-]", new String(chars));
+        ByteBuffer readOnly = ByteBuffer.allocate(8).asReadOnlyBuffer();
+        try {
+            formatter.format(quantity(1), readOnly);
+            fail("Exception expected");
+        } catch (ReadOnlyBufferException e) {
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMinGreaterThanMax() throws Exception {
+        formatter.withMaxFractionDigits(2).withMinFractionDigits(3);
+    }
+
+    private static TestDecimal quantity(long raw) {
+        return new TestDecimal(2).setRaw(raw);
+    }
+
+    private static TestDecimal price(long raw) {
+        return new TestDecimal(8).setRaw(raw);
+    }
+}
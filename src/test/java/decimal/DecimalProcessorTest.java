@@ -0,0 +1,262 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import decimal.sample.Price;
+import decimal.sample.Quantity;
+import org.junit.Test;
+
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static decimal.AbstractDecimal.NaN;
+
+public class DecimalProcessorTest {
+    private static class Upstream implements Flow.Subscription {
+        long requested;
+        boolean cancelled;
+
+        @Override
+        public void request(long n) {
+            requested += n;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    private static class Downstream<R> implements Flow.Subscriber<R> {
+        final List<String> values = new ArrayList<>();
+        Flow.Subscription subscription;
+        Throwable error;
+        boolean completed;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(R item) {
+            values.add(item.toString());
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+    private final DecimalTicks ticks = new DecimalTicks(8, 2, 4);
+
+    @Test
+    public void testSum() throws Exception {
+        Downstream<Quantity> downstream = new Downstream<>();
+        DecimalProcessor<Quantity> sum = DecimalProcessor.sum(new Quantity(), RoundingMode.UNNECESSARY);
+        sum.subscribe(downstream);
+        sum.onNext(ticks.clear().add(100000000, 150).add(200000000, 250));
+        sum.onNext(ticks.clear().add(Price.create("1.5"), Quantity.create("0.01"), RoundingMode.UNNECESSARY));
+        sum.onNext(ticks.clear());
+        assertEquals("[4.00, 4.01, 4.01]", downstream.values.toString());
+
+        TestDecimal total = new TestDecimal(1);
+        DecimalProcessor<TestDecimal> rounded = DecimalProcessor.sum(total, RoundingMode.HALF_UP);
+        rounded.onNext(ticks.clear().add(0, 150).add(0, 249));
+        assertEquals("4.0", rounded.result().toString());
+        assertEquals(total, rounded.result());
+
+        // summed exactly, only the emitted value is rounded: 0.004 x 3 = 0.012
+        DecimalProcessor<Quantity> exact = DecimalProcessor.sum(new Quantity(), RoundingMode.HALF_UP);
+        exact.onNext(new DecimalTicks(8, 3, 3).add(0, 4).add(0, 4).add(0, 4));
+        assertEquals("0.01", exact.result().toString());
+        exact.onNext(new DecimalTicks(8, 3, 1).add(0, -8));
+        assertEquals("0.00", exact.result().toString());
+        exact.onNext(new DecimalTicks(8, 2, 1).add(0, 1)); // 0.014
+        assertEquals("0.01", exact.result().toString());
+
+        sum.onNext(ticks.clear().add(0, Long.MAX_VALUE));
+        assertEquals(NaN, sum.result().getRaw());
+        sum.onNext(ticks.clear().add(0, -Long.MAX_VALUE));
+        assertEquals(NaN, sum.result().getRaw());
+    }
+
+    @Test
+    public void testVwap() throws Exception {
+        DecimalProcessor<Price> vwap = DecimalProcessor.vwap(new Price(), RoundingMode.HALF_EVEN);
+        vwap.onNext(ticks.clear());
+        assertEquals(NaN, vwap.result().getRaw()); // no volume
+        vwap.onNext(ticks.clear().add(150000000, 10000).add(160000000, 30000)); // 1.5 x 100, 1.6 x 300
+        assertEquals("1.57500000", vwap.result().toString());
+        vwap.onNext(ticks.clear().add(100000000, 20000));
+        assertEquals("1.38333333", vwap.result().toString());
+
+        // rounded once, not the prices
+        DecimalProcessor<Quantity> rounded = DecimalProcessor.vwap(new Quantity(), RoundingMode.HALF_UP);
+        rounded.onNext(new DecimalTicks(4, 0, 3).add(10049, 1).add(10049, 1).add(10052, 1)); // 1.0050
+        assertEquals("1.01", rounded.result().toString());
+        rounded.onNext(new DecimalTicks(4, 0, 1).add(-30149, 1)); // 0.000025
+        assertEquals("0.00", rounded.result().toString());
+        DecimalProcessor<Quantity> up = DecimalProcessor.vwap(new Quantity(), RoundingMode.UP);
+        up.onNext(new DecimalTicks(4, 0, 2).add(10000, 2).add(10001, 1)); // 1.000033
+        assertEquals("1.01", up.result().toString());
+
+        // notional beyond long: 100.00000000 x 10000000.00 (raw 10^10 x 10^9) and 101.00000000 x 10000000.00
+        DecimalProcessor<Price> large = DecimalProcessor.vwap(new Price(), RoundingMode.HALF_UP);
+        large.onNext(ticks.clear().add(10000000000L, 1000000000L).add(10100000000L, 1000000000L));
+        assertEquals("100.50000000", large.result().toString());
+        large.onNext(ticks.clear().add(Long.MAX_VALUE, Long.MAX_VALUE).add(Long.MAX_VALUE, Long.MAX_VALUE));
+        assertEquals(NaN, large.result().getRaw()); // the volume overflows
+
+        // more digits than the prices
+        DecimalProcessor<Price> wide = DecimalProcessor.vwap(new Price(), RoundingMode.HALF_UP);
+        wide.onNext(new DecimalTicks(2, 2, 2).add(100, 100).add(101, 200)); // 1.00 x 1, 1.01 x 2
+        assertEquals("1.00666667", wide.result().toString());
+
+        Downstream<Price> downstream = new Downstream<>();
+        Upstream upstream = new Upstream();
+        vwap.subscribe(downstream);
+        vwap.onSubscribe(upstream);
+        vwap.onNext(new DecimalTicks(2, 2, 1).add(100, 100)); // other scales
+        assertTrue(downstream.error instanceof IllegalArgumentException);
+        assertTrue(upstream.cancelled);
+        vwap.onNext(ticks.clear().add(100000000, 20000));
+        vwap.onComplete();
+        assertTrue(downstream.values.isEmpty());
+        assertFalse(downstream.completed);
+    }
+
+    @Test
+    public void testOhlc() throws Exception {
+        DecimalProcessor<DecimalProcessor.Bar<Quantity>> bars = DecimalProcessor.ohlc(new Quantity(), RoundingMode.HALF_UP, true);
+        DecimalProcessor<DecimalProcessor.Bar<Price>> running = DecimalProcessor.ohlc(new Price(), RoundingMode.HALF_UP, false);
+        Downstream<DecimalProcessor.Bar<Quantity>> downstream = new Downstream<>();
+        bars.subscribe(downstream);
+
+        for (DecimalProcessor<?> processor : new DecimalProcessor<?>[] {bars, running}) {
+            processor.onNext(ticks.clear().add(150000000, 1).add(NaN, 1).add(149500000, 1).add(162000000, 1));
+            processor.onNext(ticks.clear().add(155555555, 1));
+            processor.onNext(ticks.clear().add(NaN, 1));
+        }
+        assertEquals("[[1.50, 1.62, 1.50, 1.62] x 3, [1.56, 1.56, 1.56, 1.56] x 1, [NaN, NaN, NaN, NaN] x 0]",
+                downstream.values.toString());
+        assertEquals("[1.50000000, 1.62000000, 1.49500000, 1.55555555] x 4", running.result().toString());
+        assertEquals(149500000, running.result().getLow().getRaw());
+    }
+
+    @Test
+    public void testEwma() throws Exception {
+        DecimalProcessor<Price> ewma = DecimalProcessor.ewma(new Price(), new TestDecimal(1).setRaw(5), RoundingMode.HALF_UP);
+        ewma.onNext(ticks.clear());
+        assertEquals(NaN, ewma.result().getRaw());
+        ewma.onNext(ticks.clear().add(100000000, 1).add(200000000, 1)); // 1, 1.5
+        assertEquals("1.50000000", ewma.result().toString());
+        ewma.onNext(ticks.clear().add(200000000, 1).add(100000000, 1)); // 1.75, 1.375
+        assertEquals("1.37500000", ewma.result().toString());
+
+        DecimalProcessor<Price> skipping = DecimalProcessor.ewma(new Price(), new TestDecimal(1).setRaw(5), RoundingMode.HALF_UP);
+        skipping.onNext(ticks.clear().add(NaN, 1).add(100000000, 1).add(NaN, 1).add(200000000, 1));
+        assertEquals("1.50000000", skipping.result().toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidAlpha() throws Exception {
+        DecimalProcessor.ewma(new Price(), new TestDecimal(1).setRaw(11), RoundingMode.HALF_UP);
+    }
+
+    @Test
+    public void testBackpressure() throws Exception {
+        DecimalProcessor<Quantity> sum = DecimalProcessor.sum(new Quantity(), RoundingMode.UNNECESSARY);
+        Downstream<Quantity> downstream = new Downstream<>();
+        sum.subscribe(downstream);
+        downstream.subscription.request(2); // before subscribed to upstream
+        Upstream upstream = new Upstream();
+        sum.onSubscribe(upstream);
+        assertEquals(2, upstream.requested);
+        downstream.subscription.request(3);
+        assertEquals(5, upstream.requested);
+
+        Upstream another = new Upstream();
+        sum.onSubscribe(another);
+        assertTrue(another.cancelled);
+
+        Downstream<Quantity> second = new Downstream<>();
+        sum.subscribe(second);
+        assertTrue(second.error instanceof IllegalStateException);
+
+        downstream.subscription.request(0);
+        assertTrue(downstream.error instanceof IllegalArgumentException);
+        assertTrue(upstream.cancelled);
+
+        sum.onComplete();
+        assertTrue(downstream.completed);
+    }
+
+    @Test
+    public void testPipeline() throws Exception {
+        final CountDownLatch done = new CountDownLatch(1);
+        final List<String> results = new ArrayList<>();
+        DecimalProcessor<Price> vwap = DecimalProcessor.vwap(new Price(), RoundingMode.HALF_EVEN);
+        try (SubmissionPublisher<DecimalTicks> publisher = new SubmissionPublisher<>(Runnable::run, 4)) {
+            publisher.subscribe(vwap);
+            vwap.subscribe(new Downstream<Price>() {
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    super.onSubscribe(subscription);
+                    subscription.request(1);
+                }
+
+                @Override
+                public void onNext(Price item) {
+                    results.add(item.toString());
+                    subscription.request(1);
+                }
+
+                @Override
+                public void onComplete() {
+                    done.countDown();
+                }
+            });
+            for (int i = 1; i <= 3; i++) {
+                publisher.submit(new DecimalTicks(8, 2, 1).add(i * 100000000L, 100));
+            }
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals("[1.00000000, 1.50000000, 2.00000000]", results.toString());
+    }
+}
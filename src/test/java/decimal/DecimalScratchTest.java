@@ -0,0 +1,118 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import decimal.sample.Price;
+import decimal.sample.Quantity;
+import org.junit.Test;
+
+import java.math.RoundingMode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class DecimalScratchTest {
+    @Test
+    public void testReuse() throws Exception {
+        DecimalScratch scratch = DecimalScratch.current();
+        int mark = scratch.mark();
+        Price price = scratch.take(Price.CONSTANTS.one());
+        Quantity quantity = scratch.take(new Quantity());
+        AbstractDecimal<?> raw = scratch.take(4);
+        assertEquals(mark + 3, scratch.mark());
+        assertEquals(0, price.getRaw());
+        assertFalse(price.isFrozen());
+        assertEquals("0.0000", raw.toString());
+        price.setRaw(1);
+        scratch.release(mark);
+
+        assertSame(price, scratch.take(new Price()));
+        assertEquals(0, price.getRaw());
+        assertSame(quantity, scratch.take(new Quantity()));
+        assertSame(raw, scratch.take(4));
+        scratch.release(mark);
+
+        Quantity other = scratch.take(new Quantity()); // different class at the same position
+        assertNotSame(quantity, other);
+        assertNotSame(raw, scratch.take(3));
+        assertNotSame(quantity, scratch.take(new Quantity()));
+        scratch.release(mark);
+        assertEquals(mark, scratch.mark());
+
+        assertEquals("0.00", scratch.take(new TestDecimal(2)).toString());
+        scratch.release(mark);
+        assertEquals("0.00000000", scratch.take(new TestDecimal(8)).toString()); // different scale of the same class
+        scratch.release(mark);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFlyweight() throws Exception {
+        DecimalScratch.current().take(new PaddedDecimalArray<>(new Price(), 1).cell().at(0));
+    }
+
+    @Test
+    public void testNested() throws Exception {
+        DecimalScratch scratch = DecimalScratch.current();
+        int mark = scratch.mark();
+        for (int i = 0; i < 100; i++) {
+            scratch.take(i % 10);
+        }
+        assertEquals("1.23", average(Price.create("1.2"), Price.create("1.25"), new Quantity()).toString());
+        scratch.release(mark);
+    }
+
+    private static Quantity average(Price first, Price second, Quantity result) {
+        DecimalScratch scratch = DecimalScratch.current();
+        int mark = scratch.mark();
+        try {
+            Price sum = scratch.take(first).set(first).add(second);
+            return result.set(sum, RoundingMode.DOWN).div(2, RoundingMode.HALF_UP);
+        } finally {
+            scratch.release(mark);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testInvalidMark() throws Exception {
+        DecimalScratch scratch = DecimalScratch.current();
+        scratch.release(scratch.mark() + 1);
+    }
+
+    @Test
+    public void testThreads() throws Exception {
+        final DecimalScratch[] other = new DecimalScratch[1];
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                other[0] = DecimalScratch.current();
+            }
+        };
+        thread.start();
+        thread.join();
+        assertNotSame(DecimalScratch.current(), other[0]);
+        assertSame(DecimalScratch.current(), DecimalScratch.current());
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static decimal.AbstractDecimal.NaN;
+
+public class DecimalSeriesTest {
+    private final Random random = new Random(42);
+
+    @Test
+    public void testRandomWalk() throws Exception {
+        long[] values = new long[10000];
+        long price = 123450000000L;
+        for (int i = 0; i < values.length; i++) {
+            price += (random.nextInt(5) - 2) * 500000L; // tick 0.005
+            values[i] = price;
+        }
+        int size = check(values, DecimalSeriesWriter.DEFAULT_BLOCK_SIZE);
+        assertTrue(size + " bytes", size < values.length / 2); // 3 bits per value
+    }
+
+    @Test
+    public void testLevels() throws Exception {
+        long[] levels = {NaN, 100, 250, 1000000000000L, -5};
+        long[] values = new long[5000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = levels[random.nextInt(levels.length)];
+        }
+        int size = check(values, 1000);
+        assertTrue(size + " bytes", size < values.length / 2);
+    }
+
+    @Test
+    public void testMixed() throws Exception {
+        long[] values = new long[1234];
+        for (int i = 0; i < values.length; i++) {
+            switch (i / 100 % 5) {
+                case 0:
+                    values[i] = random.nextLong();
+                    break;
+                case 1:
+                    values[i] = 42;
+                    break;
+                case 2:
+                    values[i] = i % 2 == 0 ? Long.MAX_VALUE : NaN;
+                    break;
+                case 3:
+                    values[i] = 1000000 + 7 * i; // trend
+                    break;
+                default:
+                    values[i] = random.nextLong() >> 40;
+            }
+        }
+        for (int blockSize : new int[] {1, 2, 3, 100, 300, 2000}) {
+            check(values, blockSize);
+        }
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        check(new long[0], 10);
+    }
+
+    private int check(long[] values, int blockSize) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DecimalSeriesWriter writer = new DecimalSeriesWriter(out, blockSize);
+        writer.add(values, 0, values.length);
+        writer.close();
+        assertEquals(values.length, writer.size());
+        assertEquals(out.size(), writer.bytesWritten());
+
+        byte[] bytes = new byte[out.size() + 3];
+        System.arraycopy(out.toByteArray(), 0, bytes, 3, out.size());
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.position(3);
+        DecimalSeriesReader reader = new DecimalSeriesReader(buffer);
+        assertEquals(values.length, reader.size());
+        assertEquals(blockSize, reader.getBlockSize());
+        assertEquals((values.length + blockSize - 1) / blockSize, reader.getBlockCount());
+
+        long[] result = new long[reader.getBlockCount() * blockSize];
+        for (int block = reader.getBlockCount() - 1; block >= 0; block--) {
+            int count = reader.readBlock(block, result, block * blockSize);
+            assertEquals(Math.min(blockSize, values.length - block * blockSize), count);
+        }
+        long[] actual = new long[values.length];
+        System.arraycopy(result, 0, actual, 0, values.length);
+        assertArrayEquals(values, actual);
+        for (int i = 0; i < values.length; i += 7) {
+            assertEquals(values[i], reader.get(i));
+        }
+        return out.size();
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import org.junit.Test;
+
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static decimal.AbstractDecimal.NaN;
+
+public class FixDecimalScannerTest {
+    private final FixDecimalScanner scanner = new FixDecimalScanner(new int[] {44, 38, 31, 2000}, RoundingMode.HALF_UP);
+    private final TestDecimal price = new TestDecimal(8);
+    private final TestDecimal quantity = new TestDecimal(2);
+    private final TestDecimal lastPx = new TestDecimal(8);
+    private final TestDecimal custom = new TestDecimal(4);
+    private final AbstractDecimal<?>[] targets = {price, quantity, lastPx, custom};
+
+    @Test
+    public void testScan() throws Exception {
+        byte[] message = fix("8=FIX.4.4|9=100|35=8|44=1.2345|38=100|31=1.5E-4|2000=7|10=000|");
+        assertEquals(0xF, scanner.scan(message, 0, message.length, targets));
+        assertEquals(123450000, price.getRaw());
+        assertEquals(10000, quantity.getRaw());
+        assertEquals(15000, lastPx.getRaw());
+        assertEquals(70000, custom.getRaw());
+    }
+
+    @Test
+    public void testMissingAndMalformed() throws Exception {
+        price.setRaw(1);
+        quantity.setRaw(2);
+        lastPx.setRaw(3);
+        custom.setRaw(4);
+        byte[] message = fix("35=D|38=abc|=1|4x=2|31=0.001|31=5|2000=1.00005");
+        assertEquals(0xC, scanner.scan(message, 0, message.length, targets));
+        assertEquals(1, price.getRaw()); // not found, not changed
+        assertEquals(NaN, quantity.getRaw()); // malformed
+        assertEquals(100000, lastPx.getRaw()); // first occurrence
+        assertEquals(10001, custom.getRaw()); // rounded, no SOH at the end
+    }
+
+    @Test
+    public void testBuffer() throws Exception {
+        byte[] message = fix("XXX44=99.5|38=10|");
+        ByteBuffer buffer = ByteBuffer.allocateDirect(message.length);
+        buffer.put(message);
+        assertEquals(0x3, scanner.scan(buffer, 3, message.length - 3, targets));
+        assertEquals(9950000000L, price.getRaw());
+        assertEquals(1000, quantity.getRaw());
+        assertEquals(message.length, buffer.position());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateTags() throws Exception {
+        new FixDecimalScanner(new int[] {44, 44}, RoundingMode.DOWN);
+    }
+
+    private static byte[] fix(String message) {
+        return message.replace('|', (char) FixDecimalScanner.SOH).getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import org.junit.Test;
+
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static decimal.AbstractDecimal.NaN;
+
+public class JsonDecimalCodecTest {
+    private final JsonDecimalCodec codec = new JsonDecimalCodec();
+    private final TestDecimal price = new TestDecimal(4);
+
+    @Test
+    public void testWrite() throws Exception {
+        assertEquals("{\"px\":1.5000,\"qty\":-0.0100,\"x\":null}", write(codec, 15000, -100, NaN));
+        assertEquals("{\"px\":1.5,\"qty\":-0.01,\"x\":null}", write(new JsonDecimalCodec(0, RoundingMode.DOWN), 15000, -100, NaN));
+        assertEquals(4, codec.length(price.setRaw(NaN)));
+        assertEquals(6, codec.length(price.setRaw(12)));
+    }
+
+    @Test
+    public void testRead() throws Exception {
+        assertRead(codec, "1.5", 15000);
+        assertRead(codec, "-0", 0);
+        assertRead(codec, "0.0001", 1);
+        assertRead(codec, "-12.34e2", -12340000);
+        assertRead(codec, "1E+3", 10000000);
+        assertRead(codec, "12345e-4", 12345);
+        assertRead(codec, "1.23450000000000000000", 12345);
+        assertRead(codec, "null", NaN);
+
+        for (String malformed : new String[] {"", "-", "+1", "01", ".5", "1.", "1e", "1e+", "NaN", "1.5 ", " 1", "0x1",
+                "nul", "nulll", "1.23456"}) {
+            price.setRaw(1);
+            assertFalse(malformed, read(codec, malformed));
+            assertEquals(NaN, price.getRaw());
+        }
+        assertFalse(read(codec, "1e100"));
+
+        assertRead(new JsonDecimalCodec(0, RoundingMode.HALF_UP), "1.23456", 12346);
+        assertRead(new JsonDecimalCodec(0, RoundingMode.HALF_UP), "3.14159265358979323846", 31416);
+    }
+
+    @Test
+    public void testNumberLength() throws Exception {
+        byte[] json = "[-1.25e-3,0,10.5]".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(0, JsonDecimalCodec.numberLength(json, 0, json.length));
+        assertEquals(8, JsonDecimalCodec.numberLength(json, 1, json.length));
+        assertEquals(1, JsonDecimalCodec.numberLength(json, 10, json.length));
+        assertEquals(4, JsonDecimalCodec.numberLength(ByteBuffer.wrap(json), 12, json.length));
+        assertEquals(2, JsonDecimalCodec.numberLength(json, 12, 14));
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(json.length);
+        buffer.put(json);
+        assertFalse(codec.read(buffer, 1, 8, price.setRaw(1))); // -0.00125 is not exact
+        assertEquals(NaN, price.getRaw());
+        assertTrue(new JsonDecimalCodec(0, RoundingMode.HALF_UP).read(buffer, 1, 8, price));
+        assertEquals(-13, price.getRaw());
+        assertTrue(codec.read(buffer, 12, 4, price));
+        assertEquals(105000, price.getRaw());
+        assertEquals(json.length, buffer.position());
+    }
+
+    private String write(JsonDecimalCodec codec, long px, long qty, long x) {
+        ByteBuffer buffer = ByteBuffer.allocate(100);
+        byte[] bytes = new byte[100];
+        buffer.put("{\"px\":".getBytes(StandardCharsets.US_ASCII));
+        codec.write(price.setRaw(px), buffer);
+        buffer.put(",\"qty\":".getBytes(StandardCharsets.US_ASCII));
+        codec.write(price.setRaw(qty), buffer);
+        buffer.put(",\"x\":".getBytes(StandardCharsets.US_ASCII));
+        int length = codec.write(price.setRaw(x), bytes, 0);
+        buffer.put(bytes, 0, length).put((byte) '}');
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII);
+    }
+
+    private void assertRead(JsonDecimalCodec codec, String json, long expected) {
+        assertTrue(json, read(codec, json));
+        assertEquals(json, expected, price.getRaw());
+    }
+
+    private boolean read(JsonDecimalCodec codec, String json) {
+        byte[] bytes = (" " + json).getBytes(StandardCharsets.US_ASCII);
+        return codec.read(bytes, 1, bytes.length - 1, price);
+    }
+}
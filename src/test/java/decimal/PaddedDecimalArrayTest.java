@@ -0,0 +1,121 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import org.junit.Test;
+
+import java.math.RoundingMode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static decimal.AbstractDecimal.NaN;
+
+public class PaddedDecimalArrayTest {
+    @Test
+    public void testAccess() throws Exception {
+        PaddedDecimalArray<TestDecimal> array = new PaddedDecimalArray<>(new TestDecimal(2), 3);
+        assertEquals(3, array.length());
+        assertEquals("[0.00, 0.00, 0.00]", array.toString());
+
+        array.set(0, new TestDecimal(2).setRaw(150));
+        array.setRaw(2, -1);
+        array.add(1, new TestDecimal(4).setRaw(12345), RoundingMode.HALF_UP);
+        array.add(1, new TestDecimal(0).setRaw(1), RoundingMode.UNNECESSARY);
+        array.add(1, new TestDecimal(2).setRaw(-100));
+        array.add(1, new TestDecimal(2).setRaw(100));
+        assertEquals("[1.50, 2.23, -0.01]", array.toString());
+        assertEquals(223, array.get(1, new TestDecimal(2)).getRaw());
+
+        assertFalse(array.compareAndSetRaw(0, 1, 2));
+        assertTrue(array.compareAndSetRaw(0, 150, 2));
+        assertEquals(2, array.getRaw(0));
+
+        array.add(2, new TestDecimal(3).setRaw(1), RoundingMode.UNNECESSARY);
+        assertEquals(NaN, array.getRaw(2));
+        array.setRaw(2, Long.MAX_VALUE);
+        array.add(2, new TestDecimal(2).setRaw(1));
+        assertEquals(NaN, array.getRaw(2));
+        array.add(2, new TestDecimal(2).setRaw(-1));
+        assertEquals(NaN, array.getRaw(2));
+    }
+
+    @Test
+    public void testCell() throws Exception {
+        PaddedDecimalArray<TestDecimal> array = new PaddedDecimalArray<>(new TestDecimal(2), 2);
+        PaddedDecimalArray.Cell cell = array.cell();
+        cell.at(1).fromLong(3).mul(new TestDecimal(1).setRaw(15), RoundingMode.DOWN).add(1);
+        assertEquals("5.50", cell.toString());
+        assertEquals(550, array.getRaw(1));
+        assertEquals(0, array.getRaw(0));
+        assertEquals(0, cell.at(0).compareTo(new TestDecimal(0)));
+        cell.at(0).set(cell.clone().at(1)).divRD(2);
+        assertEquals("[2.75, 5.50]", array.toString());
+        assertEquals(275, cell.setRawRelease(cell.getRawOpaque()).getRawAcquire());
+        assertTrue(cell.compareAndSetRaw(275, 1));
+        assertEquals(1, cell.setRawOpaque(cell.getRawVolatile()).setRawVolatile(1).getRaw());
+        assertEquals(1, array.getRaw(0));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testIndex() throws Exception {
+        new PaddedDecimalArray<>(new TestDecimal(2), 2).cell().at(2);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testCellBeforeAt() throws Exception {
+        new PaddedDecimalArray<>(new TestDecimal(2), 2).cell().setRaw(1); // not into the padding
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testScale() throws Exception {
+        new PaddedDecimalArray<>(new TestDecimal(2), 2).set(0, new TestDecimal(3));
+    }
+
+    @Test
+    public void testConcurrent() throws Exception {
+        final PaddedDecimalArray<TestDecimal> array = new PaddedDecimalArray<>(new TestDecimal(2), 4);
+        Thread[] threads = new Thread[array.length()];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    TestDecimal fill = new TestDecimal(4).setRaw(101); // 0.0101 rounded up to 0.02
+                    PaddedDecimalArray.Cell cell = array.cell().at(index);
+                    for (int j = 0; j < 100000; j++) {
+                        cell.add(fill, RoundingMode.UP);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int i = 0; i < array.length(); i++) {
+            assertEquals(200000, array.getRaw(i));
+        }
+    }
+}
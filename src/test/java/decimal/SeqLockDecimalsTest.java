@@ -0,0 +1,103 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import decimal.sample.Price;
+import decimal.sample.Quantity;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SeqLockDecimalsTest {
+    private static final int BID = 0;
+    private static final int ASK = 1;
+    private static final int BID_SIZE = 2;
+    private static final int ASK_SIZE = 3;
+
+    @Test
+    public void testReadWrite() throws Exception {
+        SeqLockDecimals quote = new SeqLockDecimals(8, 8, 2, 2);
+        assertEquals(4, quote.size());
+        assertEquals(2, quote.getScale(BID_SIZE));
+        assertEquals("[0.00000000, 0.00000000, 0.00, 0.00]", quote.toString());
+
+        quote.beginWrite();
+        quote.set(BID, Price.create("1.25"));
+        quote.set(ASK, Price.create("1.26"));
+        quote.set(BID_SIZE, Quantity.create("100"));
+        quote.setRaw(ASK_SIZE, 5000);
+        quote.endWrite();
+        assertEquals("[1.25000000, 1.26000000, 100.00, 50.00]", quote.toString());
+
+        long[] snapshot = new long[4];
+        quote.read(snapshot);
+        assertArrayEquals(new long[] {125000000, 126000000, 10000, 5000}, snapshot);
+
+        long stamp = quote.readStamp();
+        assertEquals("1.25000000", quote.get(BID, new Price()).toString());
+        assertEquals("100.00", quote.get(BID_SIZE, new Quantity()).toString());
+        assertTrue(quote.validate(stamp));
+        quote.beginWrite();
+        quote.endWrite();
+        assertFalse(quote.validate(stamp));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testScale() throws Exception {
+        new SeqLockDecimals(8, 2).set(1, new Price());
+    }
+
+    @Test
+    public void testConcurrent() throws Exception {
+        final SeqLockDecimals quote = new SeqLockDecimals(8, 8, 2, 2);
+        final int count = 1000000;
+        Thread writer = new Thread() {
+            @Override
+            public void run() {
+                for (long i = 1; i <= count; i++) {
+                    quote.beginWrite();
+                    quote.setRaw(BID, i);
+                    quote.setRaw(ASK, i + 1);
+                    quote.setRaw(BID_SIZE, i * 2);
+                    quote.setRaw(ASK_SIZE, -i);
+                    quote.endWrite();
+                }
+            }
+        };
+        writer.start();
+        long[] snapshot = new long[4];
+        long last = 0;
+        while (last < count) {
+            quote.read(snapshot);
+            long bid = snapshot[BID];
+            assertTrue(bid >= last);
+            assertArrayEquals(new long[] {bid, bid == 0 ? 0 : bid + 1, bid * 2, -bid}, snapshot);
+            last = bid;
+        }
+        writer.join();
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ MIT License
+
+ Copyright (c) 2016 Maxim Tomin
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package decimal;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.RoundingMode;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static decimal.AbstractDecimal.NaN;
+
+public class TickJournalTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testAppendAndRead() throws Exception {
+        Path directory = folder.getRoot().toPath().resolve("journal");
+        try (TickJournal journal = TickJournal.open(directory, 8, 2, 10)) {
+            for (int i = 0; i < 25; i++) {
+                journal.append(1000 + i / 2 * 10, 100000000L + i, i == 7 ? NaN : 100 * i);
+            }
+            assertEquals(25, journal.size());
+            assertEquals(3, directory.toFile().list().length);
+
+            TickJournal.Cursor cursor = journal.cursor();
+            for (int i = 0; i < 25; i++) {
+                assertTrue(cursor.next());
+                assertEquals(i, cursor.index());
+                assertEquals(1000 + i / 2 * 10, cursor.timestamp());
+                assertEquals(100000000L + i, cursor.priceRaw());
+                assertEquals(i == 7 ? NaN : 100 * i, cursor.quantityRaw());
+            }
+            assertFalse(cursor.next());
+            assertEquals(24, cursor.index());
+
+            assertEquals(0, journal.lowerBound(Long.MIN_VALUE));
+            assertEquals(4, journal.lowerBound(1020));
+            assertEquals(6, journal.lowerBound(1025));
+            assertEquals(25, journal.lowerBound(2000));
+
+            // [1045, 1075)
+            cursor.seekTime(1045);
+            int count = 0;
+            while (cursor.nextBefore(1075)) {
+                assertTrue(cursor.timestamp() >= 1045 && cursor.timestamp() < 1075);
+                count++;
+            }
+            assertEquals(6, count);
+            assertEquals(15, cursor.index());
+            assertTrue(cursor.next());
+            assertEquals(1080, cursor.timestamp());
+
+            TestDecimal price = cursor.seek(3).next() ? cursor.price(new TestDecimal(4), RoundingMode.HALF_UP) : null;
+            assertEquals(10000, price.getRaw());
+            assertEquals(NaN, cursor.seek(7).next() ? cursor.quantity(new TestDecimal(2), RoundingMode.DOWN).getRaw() : 0);
+
+            journal.append(2000, new TestDecimal(9).setRaw(1234567891), new TestDecimal(0).setRaw(3), RoundingMode.HALF_UP);
+            assertTrue(cursor.seek(25).next());
+            assertEquals(123456789, cursor.priceRaw());
+            assertEquals(300, cursor.quantityRaw());
+        }
+
+        try (TickJournal journal = TickJournal.open(directory, 8, 2, 10)) {
+            assertEquals(26, journal.size());
+            journal.append(2000, 1, 2);
+            TickJournal.Cursor cursor = journal.cursor().seek(24);
+            assertTrue(cursor.next());
+            assertEquals(1120, cursor.timestamp());
+            assertTrue(cursor.next());
+            assertTrue(cursor.next());
+            assertEquals(26, cursor.index());
+            assertEquals(2, cursor.quantityRaw());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecreasingTimestamp() throws Exception {
+        try (TickJournal journal = TickJournal.open(folder.getRoot().toPath(), 8, 2, 10)) {
+            journal.append(10, 1, 1);
+            journal.append(9, 1, 1);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testIncompatible() throws Exception {
+        File directory = folder.newFolder();
+        TickJournal.open(directory.toPath(), 8, 2, 10).append(1, 1, 1);
+        TickJournal.open(directory.toPath(), 8, 3, 10);
+    }
+
+    @Test
+    public void testConcurrentReader() throws Exception {
+        final int size = 100000;
+        try (final TickJournal journal = TickJournal.open(folder.getRoot().toPath(), 8, 2, 1000)) {
+            final AtomicReference<Throwable> error = new AtomicReference<>();
+            Thread reader = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        TickJournal.Cursor cursor = journal.cursor();
+                        for (long i = 0; i < size; ) {
+                            if (cursor.next()) {
+                                assertEquals(i, cursor.timestamp());
+                                assertEquals(i * 3, cursor.priceRaw());
+                                assertEquals(-i, cursor.quantityRaw());
+                                i++;
+                            }
+                        }
+                    } catch (Throwable e) {
+                        error.set(e);
+                    }
+                }
+            };
+            reader.start();
+            for (int i = 0; i < size; i++) {
+                journal.append(i, i * 3L, -i);
+            }
+            reader.join();
+            if (error.get() != null) {
+                throw new AssertionError(error.get());
+            }
+        }
+    }
+}